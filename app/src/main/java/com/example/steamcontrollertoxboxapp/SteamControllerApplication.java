@@ -0,0 +1,27 @@
+package com.example.steamcontrollertoxboxapp;
+
+import android.app.Application;
+
+import com.example.steamcontrollertoxboxapp.logging.Log;
+
+/**
+ * Routes logging of the platform-independent core module to logcat before any
+ * core class (the native library loader in particular) is touched.
+ */
+public class SteamControllerApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Log.setSink(new LogcatSink());
+    }
+
+    private static class LogcatSink implements Log.Sink {
+        @Override
+        public void log(int priority, String tag, String message, Throwable throwable) {
+            if (throwable != null) {
+                message = message + '\n' + android.util.Log.getStackTraceString(throwable);
+            }
+            android.util.Log.println(priority, tag, message);
+        }
+    }
+}
@@ -10,12 +10,8 @@ import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
 import android.bluetooth.le.BluetoothLeScanner;
-import android.bluetooth.le.ScanCallback;
-import android.bluetooth.le.ScanFilter;
-import android.bluetooth.le.ScanResult;
-import android.bluetooth.le.ScanSettings;
-import android.os.ParcelUuid;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Build;
@@ -26,13 +22,12 @@ import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.example.steamcontrollertoxboxapp.core.ReportListener;
+
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AndroidBleManager implements BleDeviceManager {
     // Error codes
@@ -58,8 +53,8 @@ public class AndroidBleManager implements BleDeviceManager {
     }
 
     public void onDataReceived(String deviceAddress, byte[] data) {
-        if (dataConsumer != null) {
-            dataConsumer.accept(data);
+        if (reportListener != null) {
+            reportListener.onReport(data, System.nanoTime());
         }
     }
 
@@ -85,21 +80,45 @@ public class AndroidBleManager implements BleDeviceManager {
     private BluetoothGatt bluetoothGatt;
 
     private final Handler handler = new Handler(Looper.getMainLooper());
-    private boolean isScanning = false;
+    // Connection priority and PHY of the link, plus setup timings
+    private final BleLinkManager linkManager = new BleLinkManager(handler);
+    // GATT operations run one at a time, in order
+    private final GattOperationQueue gattQueue = new GattOperationQueue(handler);
+    // Trackpad pulses, merged per connection interval and rate limited
+    private final HapticEngine hapticEngine = new HapticEngine(handler, linkManager, this::writeFeatureReport);
+    // Filled on service discovery so writes do not look up the service and characteristic each time
+    private final Map<UUID, BluetoothGattCharacteristic> characteristicCache = new ConcurrentHashMap<>();
     private boolean isConnected = false;
-    private int connectionRetries = 0;
-    private static final int MAX_CONNECTION_RETRIES = 3;
-    private static final long RETRY_DELAY_MS = 500; // Delay between retries
-
-    private final Map<String, BluetoothDevice> discoveredDevices = new HashMap<>();
-    private Consumer<byte[]> dataConsumer = null;
-    private ScanCallback leScanCallback;
+    // Reconnection after a failed attempt or a dropped link, on the same BluetoothGatt where possible
+    private static final long RECONNECT_INITIAL_DELAY_MS = 250;
+    private static final long RECONNECT_MAX_DELAY_MS = 16000;
+    private static final int MAX_RECONNECT_ATTEMPTS = 10;
+    // BluetoothGatt.connect() never times out on its own, see reconnect()
+    private static final long RECONNECT_TIMEOUT_MS = 5000;
+    private final ReconnectBackoff reconnectBackoff =
+            new ReconnectBackoff(RECONNECT_INITIAL_DELAY_MS, RECONNECT_MAX_DELAY_MS, MAX_RECONNECT_ATTEMPTS);
+    // The next reconnect attempt, or the timeout of the one in progress
+    private volatile Runnable pendingReconnect;
+    private volatile boolean userDisconnect = false;
+    private volatile boolean autoReconnectEnabled = true;
+    // Background connection: no connect timeout, the stack connects whenever the controller shows up
+    private volatile boolean autoConnect = false;
+    private static final int REQUESTED_MTU = 512;
+    private static final long MTU_TIMEOUT_MS = 3000;
+    private static final long DISCOVERY_TIMEOUT_MS = 10000;
+    private static final long WRITE_TIMEOUT_MS = 2000;
+    // Sent after notifications are enabled on every connection, the controller does not keep them
+    private volatile ControllerSettings controllerSettings = ControllerSettings.DEFAULT;
+
+    private volatile ReportListener reportListener = null;
+    private final ScanEngine scanEngine;
 
     // --- UUIDs (VERIFY THESE!) ---
     // Using the placeholders from the interface for consistency
     private static final UUID SERVICE_UUID = BleDeviceManager.STEAM_CONTROLLER_SERVICE_UUID;
     private static final UUID INPUT_CHAR_UUID = BleDeviceManager.INPUT_CHARACTERISTIC_UUID;
     private static final UUID CCCD_UUID = BleDeviceManager.CCCD_UUID;
+    private static final UUID FEATURE_CHAR_UUID = BleDeviceManager.FEATURE_CHARACTERISTIC_UUID;
 
 
     public AndroidBleManager(Context context, ConnectionStateCallback callback) {
@@ -113,6 +132,8 @@ public class AndroidBleManager implements BleDeviceManager {
         } else {
             bleScanner = bluetoothAdapter.getBluetoothLeScanner();
         }
+        scanEngine = new ScanEngine(handler,
+                bluetoothAdapter != null && bluetoothAdapter.isOffloadedScanBatchingSupported());
     }
 
     public void scanForDevices() {
@@ -127,6 +148,10 @@ public class AndroidBleManager implements BleDeviceManager {
         void onDeviceDiscovered(String address, String name);
         void onScanFinished();
         void onScanFailed(int errorCode);
+
+        /** All devices currently cached, strongest signal first; rate-limited by the scan engine. */
+        default void onDevicesUpdated(List<BleDevice> rankedDevices) {
+        }
     }
 
     public void scanForDevices(long scanDurationMillis, ScanListener callback) throws SecurityException {
@@ -141,86 +166,15 @@ public class AndroidBleManager implements BleDeviceManager {
             return;
         }
 
-        discoveredDevices.clear(); // Clear previous results
-        leScanCallback = new ScanCallback() {
-            public void onScanResult(int callbackType, ScanResult result) {
-                super.onScanResult(callbackType, result);
-                BluetoothDevice device = result.getDevice();
-                String deviceAddress = device.getAddress();
-                String deviceName = device.getName() != null ? device.getName() : "Unknown";
-                if (!discoveredDevices.containsKey(deviceAddress)) {
-                    Log.d(TAG, "Device found: " + deviceName + " [" + deviceAddress + "]");
-                    discoveredDevices.put(deviceAddress, device);
-                    callback.onDeviceDiscovered(deviceAddress, deviceName);
-                }
-            }
-
-            public void onScanFinished() {
-                callback.onScanFinished();
-            }
-
-            @Override
-            public void onBatchScanResults(List<ScanResult> results) {
-                super.onBatchScanResults(results);
-                for (ScanResult result : results) {
-                    BluetoothDevice device = result.getDevice();
-                    String deviceAddress = device.getAddress();
-                    String deviceName = device.getName() != null ? device.getName() : "Unknown";
-                    if (!discoveredDevices.containsKey(deviceAddress)) {
-                        Log.d(TAG, "Batch Device found: " + deviceName + " [" + deviceAddress + "]");
-                        discoveredDevices.put(deviceAddress, device);
-                        callback.onDeviceDiscovered(deviceAddress, deviceName);
-                    }
-                }
-            }
-
-            @Override
-            public void onScanFailed(int errorCode) {
-                super.onScanFailed(errorCode);
-                Log.e(TAG, "BLE Scan Failed with error code: " + errorCode);
-                isScanning = false;
-                callback.onScanFailed(errorCode);
-            }
-        };
-
-        // Try with Steam Controller service filter first
-        List<ScanFilter> filters = new ArrayList<>();
-        filters.add(new ScanFilter.Builder()
-            .setServiceUuid(new ParcelUuid(SERVICE_UUID))
-            .build());
-            
-        ScanSettings settings = new ScanSettings.Builder()
-                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
-                .build();
-
-        Log.i(TAG, "Starting BLE scan with Steam Controller service filter");
-        isScanning = true;
-        try {
-            bleScanner.startScan(filters, settings, leScanCallback);
-            Log.d(TAG, "BLE scan started successfully with service filter");
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to scan with service filter, trying without filter", e);
-            // Try again without service filter
+        // The scan engine and the scan callbacks run on the main thread
+        handler.post(() -> {
             try {
-                bleScanner.startScan(null, settings, leScanCallback); 
-                Log.d(TAG, "BLE scan started successfully without service filter");
+                scanEngine.start(bleScanner, scanDurationMillis, callback);
             } catch (SecurityException se) {
                 Log.e(TAG, "SecurityException when starting scan", se);
                 callback.onScanFailed(ERROR_PERMISSION_DENIED);
-                return;
-            } catch (Exception ex) {
-                Log.e(TAG, "Exception when starting scan without filter", ex);
-                callback.onScanFailed(ERROR_UNKNOWN);
-                return;
             }
-        }
-
-        handler.postDelayed(() -> {
-            Log.d(TAG, "Scan duration elapsed, stopping scan");
-            stopScan();
-            callback.onScanFinished();
-            Log.d(TAG, "Scan finished callback completed");
-        }, scanDurationMillis);
+        });
     }
 
     public void stopScan() {
@@ -229,23 +183,37 @@ public class AndroidBleManager implements BleDeviceManager {
             // Don't throw, just log, as it might be called automatically.
             return;
         }
-        if (bleScanner == null) return; // BT might have been disabled
+        handler.post(() -> {
+            try {
+                scanEngine.stop();
+            } catch (SecurityException se) {
+                Log.w(TAG, "Cannot stop scan without permission", se);
+            }
+        });
+    }
 
-        if (isScanning && leScanCallback != null) {
-            Log.i(TAG, "Stopping BLE scan.");
-            bleScanner.stopScan(leScanCallback);
-            isScanning = false;
-            leScanCallback = null; // Release callback
-        }
+    /** Devices seen by recent scans, ranked by signal strength. */
+    public ScanEngine getScanEngine() {
+        return scanEngine;
     }
 
-    public void connect(String deviceAddress, Consumer<byte[]> dataConsumer) throws SecurityException, IllegalArgumentException {
+    public void connect(String deviceAddress, ReportListener reportListener) throws SecurityException, IllegalArgumentException {
+        connect(deviceAddress, null, reportListener);
+    }
+
+    /**
+     * Connects to a device as seen by a scan, e.g. from {@link ScanEngine#getCachedDevice}:
+     * unlike a device looked up by address it carries the address type the controller
+     * advertised with. Falls back to a lookup by address if cachedDevice is null.
+     */
+    public void connect(String deviceAddress, BluetoothDevice cachedDevice, ReportListener reportListener)
+            throws SecurityException, IllegalArgumentException {
         if (!hasConnectPermission()) {
             Log.e(TAG, "Missing Bluetooth Connect Permission!");
             throw new SecurityException("Missing Bluetooth Connect Permission");
         }
 
-        final BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceAddress);
+        final BluetoothDevice device = cachedDevice != null ? cachedDevice : bluetoothAdapter.getRemoteDevice(deviceAddress);
         if (device == null) {
             Log.w(TAG, "Device not found. Unable to connect.");
             throw new IllegalArgumentException("Device with address " + deviceAddress + " not found");
@@ -262,14 +230,17 @@ public class AndroidBleManager implements BleDeviceManager {
         }
 
 
-        this.dataConsumer = dataConsumer;
-        this.connectionRetries = 0; // Reset retries on new connect attempt
-        Log.i(TAG, "Attempting to connect to " + device.getName() + " [" + deviceAddress + "] (Attempt " + (connectionRetries + 1) + ")");
+        this.reportListener = reportListener;
+        userDisconnect = false;
+        reconnectBackoff.reset();
+        Log.i(TAG, "Attempting to connect to " + device.getName() + " [" + deviceAddress + "]"
+                + (autoConnect ? " (background)" : ""));
 
         // Connect on the main thread (callbacks will arrive on binder threads)
         // Use handler to ensure GATT operations are on the main thread if needed, though connectGatt is okay off-main
+        linkManager.onConnectStarted();
         handler.post(() -> {
-            bluetoothGatt = device.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
+            bluetoothGatt = device.connectGatt(context, autoConnect, gattCallback, BluetoothDevice.TRANSPORT_LE);
             if (bluetoothGatt == null) {
                 Log.e(TAG, "device.connectGatt returned null!");
                 // Handle this failure case, perhaps retry or notify UI
@@ -278,10 +249,32 @@ public class AndroidBleManager implements BleDeviceManager {
         // Note: autoConnect=false is generally preferred for active connections
     }
 
+    /**
+     * Connect in the background (autoConnect) instead of directly: slower to establish,
+     * but it does not time out and waits for the controller to come back into range.
+     * Takes effect with the next connect().
+     */
+    public void setAutoConnect(boolean autoConnect) {
+        this.autoConnect = autoConnect;
+    }
+
+    /** Whether a dropped link is re-established automatically; otherwise it is reported as disconnected. */
+    public void setAutoReconnectEnabled(boolean enabled) {
+        this.autoReconnectEnabled = enabled;
+    }
+
     public boolean isConnected() {
         return isConnected;
     }
 
+    public BleLinkManager getLinkManager() {
+        return linkManager;
+    }
+
+    /**
+     * Queues a write. A write to a characteristic that is still waiting in the queue
+     * is replaced by this one, so only the latest value of a burst goes out.
+     */
     public void writeCharacteristic(UUID serviceUuid, UUID characteristicUuid, byte[] data) throws Exception {
         if (bluetoothGatt == null || !isConnected) {
             throw new IllegalStateException("Not connected to a device.");
@@ -290,29 +283,90 @@ public class AndroidBleManager implements BleDeviceManager {
             throw new SecurityException("Missing Bluetooth Connect Permission");
         }
 
-        BluetoothGattService service = bluetoothGatt.getService(serviceUuid);
-        if (service == null) {
-            throw new IllegalArgumentException("Service not found: " + serviceUuid);
-        }
-        BluetoothGattCharacteristic characteristic = service.getCharacteristic(characteristicUuid);
-        if (characteristic == null) {
-            throw new IllegalArgumentException("Characteristic not found: " + characteristicUuid);
+        BluetoothGattCharacteristic characteristic = characteristicCache.get(characteristicUuid);
+        if (characteristic == null || !characteristic.getService().getUuid().equals(serviceUuid)) {
+            throw new IllegalArgumentException("Characteristic not found: " + serviceUuid + "/" + characteristicUuid);
         }
 
-        if ((characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0 &&
-                (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) {
+        int properties = characteristic.getProperties();
+        if ((properties & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0 &&
+                (properties & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) {
             throw new UnsupportedOperationException("Characteristic does not support writing.");
         }
+        // Prefer WRITE for confirmation, WRITE_NO_RESPONSE only if that is all the characteristic supports
+        int writeType = (properties & BluetoothGattCharacteristic.PROPERTY_WRITE) != 0
+                ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+                : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+
+        gattQueue.enqueueCoalesced(new GattOperationQueue.Operation(
+                GattOperationQueue.Type.WRITE_CHARACTERISTIC, characteristicUuid, data, WRITE_TIMEOUT_MS,
+                (gatt, value) -> gatt.writeCharacteristic(characteristic, value, writeType) == BluetoothStatusCodes.SUCCESS,
+                null));
+    }
+
+    /**
+     * Configures the controller (lizard mode, IMU, report interval). Sent right away
+     * if connected, and after notifications are enabled on every (re)connection.
+     */
+    public void setControllerSettings(ControllerSettings settings) {
+        controllerSettings = settings;
+        if (isConnected && characteristicCache.containsKey(FEATURE_CHAR_UUID)) {
+            applyControllerSettings(settings);
+        }
+    }
+
+    public ControllerSettings getControllerSettings() {
+        return controllerSettings;
+    }
 
-        characteristic.setValue(data);
-        // Prefer WRITE over WRITE_NO_RESPONSE if available for confirmation, but NO_RESPONSE might be needed
-        characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT); // Or WRITE_TYPE_NO_RESPONSE
+    /**
+     * Queues the settings' feature reports in order. Queued without coalescing, so
+     * they are not merged with each other or replaced by other feature writes.
+     */
+    private void applyControllerSettings(ControllerSettings settings) {
+        linkManager.setActivePriority(settings.getConnectionPriority());
+        BluetoothGattCharacteristic feature = characteristicCache.get(FEATURE_CHAR_UUID);
+        if (feature == null) {
+            Log.w(TAG, "Feature characteristic not found (" + FEATURE_CHAR_UUID + "), controller keeps its defaults");
+            return;
+        }
+        int writeType = (feature.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE) != 0
+                ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+                : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+        Log.i(TAG, "Applying " + settings);
+        for (byte[] report : settings.toFeatureReports()) {
+            gattQueue.enqueue(new GattOperationQueue.Operation(
+                    GattOperationQueue.Type.WRITE_CHARACTERISTIC, FEATURE_CHAR_UUID, report, WRITE_TIMEOUT_MS,
+                    (gatt, value) -> gatt.writeCharacteristic(feature, value, writeType) == BluetoothStatusCodes.SUCCESS,
+                    () -> Log.w(TAG, "Feature report 0x" + Integer.toHexString(report[0] & 0xFF) + " not acknowledged")));
+        }
+    }
 
-        boolean success = bluetoothGatt.writeCharacteristic(characteristic);
-        if (!success) {
-            throw new IOException("Failed to initiate characteristic write.");
+    /** Queues one haptic feature report; pulses are already merged and rate limited by the engine. */
+    private boolean writeFeatureReport(byte[] report) {
+        BluetoothGattCharacteristic feature = characteristicCache.get(FEATURE_CHAR_UUID);
+        if (feature == null || !isConnected) {
+            return false;
         }
-        Log.d(TAG, "Initiated write to characteristic: " + characteristicUuid);
+        // Without response where possible: no ATT round trip competing with input notifications
+        int writeType = (feature.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0
+                ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE
+                : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+        gattQueue.enqueue(new GattOperationQueue.Operation(
+                GattOperationQueue.Type.WRITE_CHARACTERISTIC, FEATURE_CHAR_UUID, report, WRITE_TIMEOUT_MS,
+                (gatt, value) -> gatt.writeCharacteristic(feature, value, writeType) == BluetoothStatusCodes.SUCCESS,
+                null));
+        return true;
+    }
+
+    /** Sink for trackpad haptics; accepts pulses while notifications are enabled. */
+    public HapticEngine getHapticEngine() {
+        return hapticEngine;
+    }
+
+    /** Operation counters of the GATT queue, for diagnostics. */
+    public String getGattQueueStats() {
+        return gattQueue.formatStats();
     }
 
     public void close() {
@@ -324,6 +378,8 @@ public class AndroidBleManager implements BleDeviceManager {
     }
 
     public void disconnect() {
+        userDisconnect = true;
+        cancelReconnect();
         if (bluetoothGatt != null && isConnected) {
             try {
                 if (hasConnectPermission()) {
@@ -336,6 +392,8 @@ public class AndroidBleManager implements BleDeviceManager {
     }
 
     public void destroy() throws Exception {
+        userDisconnect = true;
+        cancelReconnect();
         if (bluetoothGatt != null) {
             if (hasConnectPermission()) {
                 Log.i(TAG, "Closing GATT connection for " + bluetoothGatt.getDevice().getAddress());
@@ -345,7 +403,11 @@ public class AndroidBleManager implements BleDeviceManager {
             }
             bluetoothGatt = null; // Nullify the reference
             isConnected = false;
-            dataConsumer = null;
+            reportListener = null;
+            hapticEngine.setEnabled(false);
+            linkManager.onDisconnected();
+            gattQueue.clear();
+            characteristicCache.clear();
         }
         stopScan(); // Ensure scanning is stopped
     }
@@ -364,78 +426,79 @@ public class AndroidBleManager implements BleDeviceManager {
                 return;
             }
 
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                if (newState == BluetoothProfile.STATE_CONNECTED) {
-                    Log.i(TAG, "Connected to GATT server: " + deviceAddress);
-                    isConnected = true;
-                    connectionRetries = 0; // Reset retries on successful connection
-                    if (connectionStateCallback != null) {
-                        connectionStateCallback.onConnectionStateChanged(newState, deviceAddress);
-                    }
-                    // Request higher MTU for better throughput (Android default is often 23 bytes)
-                    // 512 is a common value, but the peripheral might negotiate lower.
-                    Log.i(TAG, "Requesting MTU change to 512");
-                    if (!gatt.requestMtu(512)) {
-                        Log.w(TAG, "Failed to initiate MTU request.");
-                        // Proceed with service discovery even if MTU request fails initially
-                        Log.i(TAG, "Attempting to start service discovery: " + gatt.discoverServices());
-                    }
-                    // Service discovery will now be initiated in onMtuChanged or if requestMtu fails
-                    // TODO: Notify UI/Service about connection attempt progress
-                } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+            if (status == BluetoothGatt.GATT_SUCCESS && newState == BluetoothProfile.STATE_CONNECTED) {
+                Log.i(TAG, "Connected to GATT server: " + deviceAddress);
+                isConnected = true;
+                cancelReconnect();
+                reconnectBackoff.reset();
+                if (connectionStateCallback != null) {
+                    connectionStateCallback.onConnectionStateChanged(newState, deviceAddress);
+                }
+                // High connection priority and the 2M PHY first, they also speed up the steps below
+                linkManager.onConnected(gatt);
+                gattQueue.attach(gatt);
+                // Request higher MTU for better throughput (Android default is often 23 bytes)
+                // 512 is a common value, but the peripheral might negotiate lower. The MTU is per
+                // connection, so this is repeated on every reconnect.
+                gattQueue.enqueue(new GattOperationQueue.Operation(
+                        GattOperationQueue.Type.REQUEST_MTU, null, null, MTU_TIMEOUT_MS, (g, value) -> {
+                            Log.i(TAG, "Requesting MTU change to " + REQUESTED_MTU);
+                            linkManager.beginStepAsync(BleLinkManager.Step.MTU);
+                            return g.requestMtu(REQUESTED_MTU);
+                        }, null));
+                if (gatt.getService(SERVICE_UUID) != null && characteristicCache.containsKey(INPUT_CHAR_UUID)) {
+                    // Reconnected on the same BluetoothGatt: its services and our cached handles are still valid
+                    Log.i(TAG, "Reusing cached GATT handles, skipping service discovery");
+                    enableNotifications(gatt);
+                } else {
+                    // Runs after the MTU request, or right away if that cannot start
+                    gattQueue.enqueue(new GattOperationQueue.Operation(
+                            GattOperationQueue.Type.DISCOVER_SERVICES, null, null, DISCOVERY_TIMEOUT_MS, (g, value) -> {
+                                linkManager.beginStepAsync(BleLinkManager.Step.SERVICE_DISCOVERY);
+                                return g.discoverServices();
+                            }, () -> onSetupFailed(deviceAddress, "Service discovery failed to start")));
+                }
+            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                if (status == BluetoothGatt.GATT_SUCCESS) {
                     Log.i(TAG, "Disconnected from GATT server: " + deviceAddress);
-                    isConnected = false;
-                    if (connectionStateCallback != null) {
-                        connectionStateCallback.onConnectionStateChanged(newState, deviceAddress);
+                } else {
+                    Log.w(TAG, "GATT Error onConnectionStateChange: " + deviceAddress + " Status: " + status + " newState: " + newState);
+                }
+                boolean wasConnected = isConnected;
+                isConnected = false;
+                hapticEngine.setEnabled(false);
+                linkManager.onDisconnected();
+                gattQueue.clear();
+
+                if (!userDisconnect && autoReconnectEnabled && gatt == bluetoothGatt && reconnectBackoff.hasAttemptsLeft()) {
+                    if (wasConnected) {
+                        Log.w(TAG, "Link to " + deviceAddress + " lost, reconnecting");
+                        linkManager.onLinkLost();
                     }
-                    try {
-                        close(); // Ensure resources are released on disconnect
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error closing GATT after disconnect", e);
+                    if (connectionStateCallback != null) {
+                        connectionStateCallback.onConnectionStateChanged(BluetoothProfile.STATE_CONNECTING, deviceAddress);
                     }
+                    scheduleReconnect(gatt);
+                    return;
                 }
-            } else {
-                Log.w(TAG, "GATT Error onConnectionStateChange: " + deviceAddress + " Status: " + status + " newState: " + newState);
-                isConnected = false;
 
-                // --- Retry Logic ---
-                if (connectionRetries < MAX_CONNECTION_RETRIES) {
-                    connectionRetries++;
-                    Log.w(TAG, "Connection attempt failed. Retrying (" + connectionRetries + "/" + MAX_CONNECTION_RETRIES + ") after delay...");
-                    final BluetoothDevice device = gatt.getDevice(); // Get device for retry
-                    try {
-                        // Close the failed connection before retrying
-                        if (hasConnectPermission()) gatt.close();
-                        bluetoothGatt = null; // Nullify GATT object
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error closing GATT before retry", e);
+                if (userDisconnect || (status == BluetoothGatt.GATT_SUCCESS && !autoReconnectEnabled)) {
+                    if (connectionStateCallback != null) {
+                        connectionStateCallback.onConnectionStateChanged(newState, deviceAddress);
                     }
-                    // Schedule retry after a delay
-                    handler.postDelayed(() -> {
-                        Log.i(TAG, "Retrying connection to " + device.getAddress() + " (Attempt " + (connectionRetries + 1) + ")");
-                        if (hasConnectPermission()) {
-                            bluetoothGatt = device.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
-                            if (bluetoothGatt == null) {
-                                Log.e(TAG, "device.connectGatt returned null on retry!");
-                                // Handle final failure if retry also fails immediately
-                            }
-                        } else {
-                            Log.e(TAG, "Cannot retry connection without permission.");
-                        }
-                    }, RETRY_DELAY_MS);
-
                 } else {
-                    Log.e(TAG, "GATT connection failed after " + MAX_CONNECTION_RETRIES + " retries. Status: " + status);
+                    Log.e(TAG, "GATT connection failed after " + reconnectBackoff.getAttempts() + " attempts. Status: " + status);
                     if (connectionStateCallback != null) {
                         connectionStateCallback.onConnectionFailed(deviceAddress, status);
                     }
-                    try {
-                        close(); // Clean up definitively on final failure
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error closing GATT after final connection failure", e);
-                    }
                 }
-                // --- End Retry Logic ---
+                try {
+                    close(); // Ensure resources are released on disconnect
+                } catch (Exception e) {
+                    Log.e(TAG, "Error closing GATT after disconnect", e);
+                }
+            } else if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "GATT Error onConnectionStateChange: " + deviceAddress + " Status: " + status + " newState: " + newState);
             }
         }
 
@@ -443,51 +506,12 @@ public class AndroidBleManager implements BleDeviceManager {
         public void onServicesDiscovered(BluetoothGatt gatt, int status) {
             if (!hasConnectPermission()) { Log.e(TAG, "GATT callback received without Connect permission!"); return; }
 
+            linkManager.endStepAsync(BleLinkManager.Step.SERVICE_DISCOVERY);
+            gattQueue.complete(GattOperationQueue.Type.DISCOVER_SERVICES, null, status);
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.i(TAG, "Services discovered for: " + gatt.getDevice().getAddress());
-                BluetoothGattService service = gatt.getService(SERVICE_UUID);
-                if (service == null) {
-                    Log.e(TAG, "Steam Controller Service NOT found ("+SERVICE_UUID+"). Check UUID!");
-                    // TODO: Notify UI/Service
-                    return;
-                }
-                BluetoothGattCharacteristic inputCharacteristic = service.getCharacteristic(INPUT_CHAR_UUID);
-                if (inputCharacteristic == null) {
-                    Log.e(TAG, "Steam Controller Input Characteristic NOT found ("+INPUT_CHAR_UUID+"). Check UUID!");
-                    // TODO: Notify UI/Service
-                    return;
-                }
-
-                // Enable notifications for the input characteristic
-                boolean notificationSet = false;
-                if ((inputCharacteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0) {
-                    Log.i(TAG, "Setting up notifications for input characteristic");
-                    if (bluetoothGatt.setCharacteristicNotification(inputCharacteristic, true)) {
-                        BluetoothGattDescriptor descriptor = inputCharacteristic.getDescriptor(CCCD_UUID);
-                        if (descriptor != null) {
-                            descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-                            if (bluetoothGatt.writeDescriptor(descriptor)) {
-                                notificationSet = true;
-                                Log.i(TAG, "Successfully enabled notifications");
-                            } else {
-                                Log.e(TAG, "Failed to write descriptor for notifications");
-                            }
-                        } else {
-                            Log.e(TAG, "CCCD descriptor not found");
-                        }
-                    } else {
-                        Log.e(TAG, "Failed to set characteristic notification");
-                    }
-                } else {
-                    Log.e(TAG, "Characteristic does not support notifications");
-                }
-
-                if (!notificationSet) {
-                    Log.e(TAG, "Failed to setup notifications - input data won't be received");
-                    if (connectionStateCallback != null) {
-                        connectionStateCallback.onConnectionFailed(gatt.getDevice().getAddress(), -1);
-                    }
-                }
+                cacheCharacteristics(gatt);
+                enableNotifications(gatt);
             } else {
                 Log.e(TAG, "Service discovery failed: " + status);
                 if (connectionStateCallback != null) {
@@ -498,24 +522,39 @@ public class AndroidBleManager implements BleDeviceManager {
 
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            if (!hasConnectPermission()) { Log.e(TAG, "GATT callback received without Connect permission!"); return; }
-            
+            // No permission check here: this is the per-report hot path and may run the whole
+            // pipeline inline (direct dispatch). Revoking BLUETOOTH_CONNECT kills the process anyway.
             if (characteristic.getUuid().equals(INPUT_CHAR_UUID)) {
+                long arrivalNanos = System.nanoTime(); // Start of the end-to-end latency measurement
                 byte[] data = characteristic.getValue();
+                linkManager.onInputReport(arrivalNanos);
                 if (data != null && data.length > 0) {
-                    if (dataConsumer != null) {
-                        dataConsumer.accept(data);
+                    ReportListener listener = reportListener;
+                    if (listener != null) {
+                        listener.onReport(data, arrivalNanos);
                     }
                 }
             }
         }
 
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            gattQueue.complete(GattOperationQueue.Type.WRITE_CHARACTERISTIC, characteristic.getUuid(), status);
+        }
+
         @Override
         public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
             if (!hasConnectPermission()) { Log.e(TAG, "GATT callback received without Connect permission!"); return; }
-            
+
+            gattQueue.complete(GattOperationQueue.Type.WRITE_DESCRIPTOR, descriptor.getUuid(), status);
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.d(TAG, "Descriptor write successful: " + descriptor.getUuid());
+                if (CCCD_UUID.equals(descriptor.getUuid())) {
+                    linkManager.endStepAsync(BleLinkManager.Step.NOTIFICATIONS);
+                    Log.i(TAG, "Successfully enabled notifications");
+                    applyControllerSettings(controllerSettings);
+                    hapticEngine.setEnabled(true);
+                }
             } else {
                 Log.e(TAG, "Descriptor write failed: " + status);
             }
@@ -524,23 +563,158 @@ public class AndroidBleManager implements BleDeviceManager {
         @Override
         public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
             if (!hasConnectPermission()) { Log.e(TAG, "GATT callback received without Connect permission!"); return; }
-            
+
+            linkManager.endStepAsync(BleLinkManager.Step.MTU);
+            // Service discovery is queued behind the MTU request and starts either way
+            gattQueue.complete(GattOperationQueue.Type.REQUEST_MTU, null, status);
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.i(TAG, "MTU changed to: " + mtu);
-                // Now that MTU is set, discover services if we haven't already
-                if (!gatt.discoverServices()) {
-                    Log.e(TAG, "Failed to start service discovery after MTU change");
-                }
             } else {
                 Log.w(TAG, "MTU change failed: " + status);
-                // Still attempt service discovery even if MTU change failed
-                if (!gatt.discoverServices()) {
-                    Log.e(TAG, "Failed to start service discovery after MTU change failure");
-                }
             }
         }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            linkManager.onPhyUpdate(txPhy, rxPhy, status);
+        }
+
+        // Hidden in the SDK but called on API 26+ whenever the connection parameters change,
+        // which is the only way to see the interval a priority request actually got
+        public void onConnectionUpdated(BluetoothGatt gatt, int interval, int latency, int timeout, int status) {
+            linkManager.onConnectionUpdated(interval, latency, timeout, status);
+        }
     };
 
+    /** Queues the CCCD write that turns on input notifications, from the cached input characteristic. */
+    private void enableNotifications(BluetoothGatt gatt) {
+        String deviceAddress = gatt.getDevice().getAddress();
+        BluetoothGattCharacteristic inputCharacteristic = characteristicCache.get(INPUT_CHAR_UUID);
+        if (inputCharacteristic == null) {
+            Log.e(TAG, "Steam Controller Input Characteristic NOT found ("+SERVICE_UUID+"/"+INPUT_CHAR_UUID+"). Check UUID!");
+            // TODO: Notify UI/Service
+            return;
+        }
+        if ((inputCharacteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_NOTIFY) == 0) {
+            onSetupFailed(deviceAddress, "Characteristic does not support notifications");
+            return;
+        }
+        Log.i(TAG, "Setting up notifications for input characteristic");
+        if (!gatt.setCharacteristicNotification(inputCharacteristic, true)) {
+            onSetupFailed(deviceAddress, "Failed to set characteristic notification");
+            return;
+        }
+        BluetoothGattDescriptor descriptor = inputCharacteristic.getDescriptor(CCCD_UUID);
+        if (descriptor == null) {
+            onSetupFailed(deviceAddress, "CCCD descriptor not found");
+            return;
+        }
+        gattQueue.enqueue(new GattOperationQueue.Operation(
+                GattOperationQueue.Type.WRITE_DESCRIPTOR, CCCD_UUID,
+                BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE, WRITE_TIMEOUT_MS, (g, value) -> {
+                    linkManager.beginStepAsync(BleLinkManager.Step.NOTIFICATIONS);
+                    return g.writeDescriptor(descriptor, value) == BluetoothStatusCodes.SUCCESS;
+                }, () -> onSetupFailed(deviceAddress, "Failed to write descriptor for notifications")));
+    }
+
+    private void scheduleReconnect(BluetoothGatt gatt) {
+        long delay = reconnectBackoff.nextDelayMillis();
+        Log.i(TAG, "Reconnecting to " + gatt.getDevice().getAddress() + " in " + delay + " ms (attempt "
+                + reconnectBackoff.getAttempts() + "/" + MAX_RECONNECT_ATTEMPTS + ")");
+        Runnable attempt = () -> reconnect(gatt);
+        handler.post(() -> {
+            cancelReconnect();
+            pendingReconnect = attempt;
+            handler.postDelayed(attempt, delay);
+        });
+    }
+
+    private void reconnect(BluetoothGatt gatt) {
+        pendingReconnect = null;
+        if (userDisconnect || gatt != bluetoothGatt) return;
+        if (!hasConnectPermission()) {
+            Log.e(TAG, "Cannot reconnect without permission.");
+            return;
+        }
+        if (characteristicCache.isEmpty()) {
+            // Never got as far as service discovery, so there is nothing to keep. A fresh client
+            // also clears a connection stuck in GATT_ERROR (133).
+            gatt.close();
+            bluetoothGatt = gatt.getDevice().connectGatt(context, autoConnect, gattCallback, BluetoothDevice.TRANSPORT_LE);
+            if (bluetoothGatt == null) {
+                Log.e(TAG, "device.connectGatt returned null on reconnect!");
+            }
+        } else if (gatt.connect()) {
+            // connect() reuses this client, keeping the discovered services and so the cached
+            // characteristic handles, but always as a background connection: it never times
+            // out and never reports a failure. Unless background connections were asked for,
+            // give it RECONNECT_TIMEOUT_MS and then count the attempt as failed.
+            if (!autoConnect) {
+                Runnable timeout = () -> onReconnectTimeout(gatt);
+                pendingReconnect = timeout;
+                handler.postDelayed(timeout, RECONNECT_TIMEOUT_MS);
+            }
+        } else {
+            Log.w(TAG, "BluetoothGatt.connect() refused to start");
+            retryOrFail(gatt);
+        }
+    }
+
+    private void onReconnectTimeout(BluetoothGatt gatt) {
+        pendingReconnect = null;
+        if (userDisconnect || isConnected || gatt != bluetoothGatt) return;
+        if (!hasConnectPermission()) {
+            Log.e(TAG, "Cannot reconnect without permission.");
+            return;
+        }
+        Log.w(TAG, "Reconnect to " + gatt.getDevice().getAddress() + " timed out after " + RECONNECT_TIMEOUT_MS + " ms");
+        // Closing cancels the background connection without a callback. With the cache
+        // cleared the next attempt creates a fresh client, which does time out.
+        gatt.close();
+        characteristicCache.clear();
+        retryOrFail(gatt);
+    }
+
+    private void retryOrFail(BluetoothGatt gatt) {
+        if (reconnectBackoff.hasAttemptsLeft()) {
+            scheduleReconnect(gatt);
+            return;
+        }
+        Log.e(TAG, "GATT connection failed after " + reconnectBackoff.getAttempts() + " attempts.");
+        if (connectionStateCallback != null) {
+            connectionStateCallback.onConnectionFailed(gatt.getDevice().getAddress(), -1);
+        }
+        close();
+    }
+
+    private void cancelReconnect() {
+        Runnable pending = pendingReconnect;
+        if (pending != null) {
+            handler.removeCallbacks(pending);
+            pendingReconnect = null;
+        }
+    }
+
+    private void cacheCharacteristics(BluetoothGatt gatt) {
+        characteristicCache.clear();
+        if (gatt.getService(SERVICE_UUID) == null) {
+            Log.e(TAG, "Steam Controller Service NOT found ("+SERVICE_UUID+"). Check UUID!");
+        }
+        for (BluetoothGattService service : gatt.getServices()) {
+            for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                characteristicCache.put(characteristic.getUuid(), characteristic);
+            }
+        }
+        Log.d(TAG, "Cached " + characteristicCache.size() + " characteristics");
+    }
+
+    private void onSetupFailed(String deviceAddress, String reason) {
+        Log.e(TAG, reason + " - input data won't be received");
+        if (connectionStateCallback != null) {
+            connectionStateCallback.onConnectionFailed(deviceAddress, -1);
+        }
+    }
+
     private boolean hasScanPermission() {
         return ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED;
     }
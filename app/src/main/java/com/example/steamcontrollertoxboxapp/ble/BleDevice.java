@@ -1,12 +1,21 @@
 package com.example.steamcontrollertoxboxapp.ble;
 
 public class BleDevice {
+    /** RSSI of a device that was not seen by a scan. */
+    public static final int RSSI_UNKNOWN = Integer.MIN_VALUE;
+
     private final String address;
     private final String name;
+    private final int rssi; // dBm, averaged over recent advertisements
 
     public BleDevice(String address, String name) {
+        this(address, name, RSSI_UNKNOWN);
+    }
+
+    public BleDevice(String address, String name, int rssi) {
         this.address = address;
         this.name = name;
+        this.rssi = rssi;
     }
 
     public String getAddress() {
@@ -17,6 +26,10 @@ public class BleDevice {
         return name;
     }
 
+    public int getRssi() {
+        return rssi;
+    }
+
     @Override
     public String toString() {
         return name != null ? name + " (" + address + ")" : address;
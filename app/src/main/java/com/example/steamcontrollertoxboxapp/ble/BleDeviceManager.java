@@ -1,13 +1,16 @@
 package com.example.steamcontrollertoxboxapp.ble;
 
+import com.example.steamcontrollertoxboxapp.core.ReportListener;
+
 import java.util.UUID;
-import java.util.function.Consumer;
 
 public interface BleDeviceManager {
     // UUIDs for Steam Controller BLE service and characteristics
     UUID STEAM_CONTROLLER_SERVICE_UUID = UUID.fromString("00010000-0001-1000-8000-00805F9B34FB");
     UUID INPUT_CHARACTERISTIC_UUID = UUID.fromString("00010001-0001-1000-8000-00805F9B34FB");
     UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb"); // Standard CCCD UUID
+    // Feature reports (controller settings, haptics) are written here (VERIFY)
+    UUID FEATURE_CHARACTERISTIC_UUID = UUID.fromString("100F6C34-1735-4313-B402-38567131E5F3");
 
     void scanForDevices();
     void onDeviceConnected(String deviceAddress);
@@ -15,7 +18,7 @@ public interface BleDeviceManager {
     void onDataReceived(String deviceAddress, byte[] data);
     void onError(String deviceAddress, String errorMessage);
 
-    void connect(String deviceAddress, Consumer<byte[]> dataConsumer) throws SecurityException, IllegalArgumentException;
+    void connect(String deviceAddress, ReportListener reportListener) throws SecurityException, IllegalArgumentException;
 
     boolean isConnected();
 
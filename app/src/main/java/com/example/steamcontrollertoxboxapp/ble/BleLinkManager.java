@@ -0,0 +1,357 @@
+package com.example.steamcontrollertoxboxapp.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection parameters of one controller link. While input is flowing the link
+ * runs at CONNECTION_PRIORITY_HIGH (7.5-15 ms interval) on the 2M PHY; after
+ * the idle timeout without a report it relaxes to CONNECTION_PRIORITY_BALANCED,
+ * and the next report switches it back. A controller that keeps streaming
+ * unchanged reports is reported idle through {@link #setInputIdle}, which
+ * relaxes the link right away.
+ *
+ * Also records how long each step of link setup takes, from connectGatt() to
+ * notifications being enabled, and the time to the first input report after
+ * connecting and after each reconnect. All state changes run on the given handler;
+ * {@link #onInputReport(long)} is called per report from the GATT callback
+ * thread and only touches volatiles.
+ */
+public class BleLinkManager {
+    private static final String TAG = "BleLinkManager";
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5000;
+
+    /** Link setup steps, in the order they normally complete. */
+    public enum Step { CONNECT, PRIORITY, PHY, MTU, SERVICE_DISCOVERY, NOTIFICATIONS }
+
+    private static final int STEP_COUNT = Step.values().length;
+    private static final long NOT_DONE = -1;
+
+    private final Handler handler;
+    private final long[] stepStartNanos = new long[STEP_COUNT];
+    private final long[] stepDurationNanos = new long[STEP_COUNT];
+    private final AtomicBoolean boostPending = new AtomicBoolean(false);
+
+    private BluetoothGatt gatt; // Handler thread only
+    private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    // Priority while input is flowing; only HIGH relaxes when idle
+    private volatile int activePriority = BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+    private volatile long lastReportNanos;
+    private volatile boolean inputIdle = false; // Reports still arrive but carry no changes
+    private volatile boolean highPriority = false; // At activePriority, not relaxed
+    private volatile int connectionIntervalMicros = 0; // 0 until the controller reports one
+    private volatile int txPhy = 0;
+    private volatile int rxPhy = 0;
+    private volatile int priorityChanges = 0;
+
+    // Time to the first input report after connecting, and after the link dropped
+    private volatile long awaitingFirstReportSince = 0; // 0 once the first report arrived
+    private volatile boolean reconnecting = false;
+    private volatile long timeToFirstReportNanos = NOT_DONE;
+    private volatile long lastReconnectNanos = NOT_DONE;
+    private volatile int reconnects = 0;
+
+    private final Runnable idleCheck = this::checkIdle;
+    private final Runnable boost = () -> {
+        boostPending.set(false);
+        if (gatt != null && !highPriority) {
+            Log.d(TAG, "Input resumed, raising connection priority");
+            requestPriority(activePriority);
+            scheduleIdleCheck();
+        }
+    };
+
+    public BleLinkManager(Handler handler) {
+        this.handler = handler;
+        resetTimings();
+    }
+
+    /** Time without input reports after which the link relaxes to balanced priority. */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        handler.post(this::scheduleIdleCheck);
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * Connection priority while input is flowing, from the report interval the
+     * controller is configured for. Applies to the current link right away.
+     */
+    public void setActivePriority(int priority) {
+        activePriority = priority;
+        handler.post(() -> {
+            if (gatt == null) return;
+            requestPriority(priority);
+            scheduleIdleCheck();
+        });
+    }
+
+    public int getActivePriority() {
+        return activePriority;
+    }
+
+    /**
+     * While set, incoming reports are unchanged repeats and do not count as
+     * activity: the link relaxes now instead of never. Clearing it raises the
+     * priority again, like the first report after a silence. Any thread.
+     */
+    public void setInputIdle(boolean idle) {
+        inputIdle = idle;
+        if (idle) {
+            handler.post(() -> {
+                if (gatt == null || !highPriority || activePriority != BluetoothGatt.CONNECTION_PRIORITY_HIGH) return;
+                Log.d(TAG, "Input idle, relaxing connection priority");
+                handler.removeCallbacks(idleCheck);
+                requestPriority(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+            });
+        } else {
+            lastReportNanos = System.nanoTime();
+            if (!highPriority && boostPending.compareAndSet(false, true)) {
+                handler.post(boost);
+            }
+        }
+    }
+
+    // --- Link setup steps, reported by AndroidBleManager ---
+
+    /** Called when connectGatt() is issued; restarts the timings. */
+    void onConnectStarted() {
+        awaitingFirstReportSince = System.nanoTime();
+        reconnecting = false;
+        handler.post(() -> {
+            resetTimings();
+            beginStep(Step.CONNECT);
+        });
+    }
+
+    /** Raises the priority and requests the 2M PHY; the caller goes on with the MTU request. */
+    void onConnected(BluetoothGatt connectedGatt) {
+        handler.post(() -> {
+            endStep(Step.CONNECT);
+            gatt = connectedGatt;
+            lastReportNanos = System.nanoTime();
+            // Neither is a GATT operation, so they do not hold up the MTU exchange
+            requestPriority(activePriority);
+            beginStep(Step.PHY);
+            try {
+                connectedGatt.setPreferredPhy(BluetoothDevice.PHY_LE_2M_MASK, BluetoothDevice.PHY_LE_2M_MASK,
+                        BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+            } catch (SecurityException e) {
+                Log.e(TAG, "Missing permission to request the 2M PHY", e);
+            }
+            scheduleIdleCheck();
+        });
+    }
+
+    /** The link dropped and is being re-established; times the outage up to the next report. */
+    void onLinkLost() {
+        reconnecting = true;
+        awaitingFirstReportSince = System.nanoTime();
+        handler.post(() -> beginStep(Step.CONNECT));
+    }
+
+    void onDisconnected() {
+        handler.post(() -> {
+            handler.removeCallbacks(idleCheck);
+            gatt = null;
+            highPriority = false;
+            connectionIntervalMicros = 0;
+        });
+    }
+
+    void onPhyUpdate(int tx, int rx, int status) {
+        handler.post(() -> {
+            txPhy = tx;
+            rxPhy = rx;
+            endStep(Step.PHY);
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "PHY update failed: " + status);
+            } else if (tx != BluetoothDevice.PHY_LE_2M || rx != BluetoothDevice.PHY_LE_2M) {
+                Log.i(TAG, "Controller stayed on PHY tx=" + tx + " rx=" + rx);
+            }
+        });
+    }
+
+    /** @param interval in units of 1.25 ms, as reported by the controller */
+    void onConnectionUpdated(int interval, int latency, int timeout, int status) {
+        handler.post(() -> {
+            endStep(Step.PRIORITY);
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                connectionIntervalMicros = interval * 1250;
+                Log.i(TAG, "Connection interval " + connectionIntervalMicros / 1000.0 + " ms, latency " + latency
+                        + ", supervision timeout " + timeout * 10 + " ms");
+            } else {
+                Log.w(TAG, "Connection parameter update failed: " + status);
+            }
+        });
+    }
+
+    void beginStepAsync(Step step) {
+        handler.post(() -> beginStep(step));
+    }
+
+    void endStepAsync(Step step) {
+        handler.post(() -> endStep(step));
+    }
+
+    // --- Activity tracking ---
+
+    /** Per report, on the GATT callback thread. */
+    void onInputReport(long arrivalNanos) {
+        long since = awaitingFirstReportSince;
+        if (since != 0) {
+            awaitingFirstReportSince = 0;
+            handler.post(() -> onFirstReport(arrivalNanos - since));
+        }
+        if (inputIdle) {
+            return; // The idle detector clears this with the first changed report
+        }
+        lastReportNanos = arrivalNanos;
+        if (!highPriority && boostPending.compareAndSet(false, true)) {
+            handler.post(boost);
+        }
+    }
+
+    private void onFirstReport(long nanos) {
+        if (reconnecting) {
+            reconnecting = false;
+            lastReconnectNanos = nanos;
+            reconnects++;
+            Log.i(TAG, "Reconnected, first report " + nanos / 1_000_000 + " ms after the link was lost");
+        } else {
+            timeToFirstReportNanos = nanos;
+            Log.i(TAG, "First report " + nanos / 1_000_000 + " ms after connecting");
+        }
+    }
+
+    private void scheduleIdleCheck() {
+        handler.removeCallbacks(idleCheck);
+        if (gatt != null && highPriority && activePriority == BluetoothGatt.CONNECTION_PRIORITY_HIGH) {
+            handler.postDelayed(idleCheck, idleTimeoutMillis);
+        }
+    }
+
+    private void checkIdle() {
+        if (gatt == null || !highPriority || activePriority != BluetoothGatt.CONNECTION_PRIORITY_HIGH) return;
+        long idleMillis = (System.nanoTime() - lastReportNanos) / 1_000_000;
+        if (idleMillis >= idleTimeoutMillis) {
+            Log.d(TAG, "No input for " + idleMillis + " ms, relaxing connection priority");
+            requestPriority(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+        } else {
+            handler.postDelayed(idleCheck, idleTimeoutMillis - idleMillis);
+        }
+    }
+
+    private void requestPriority(int priority) {
+        beginStep(Step.PRIORITY);
+        try {
+            if (gatt.requestConnectionPriority(priority)) {
+                highPriority = priority == activePriority;
+                priorityChanges++;
+            } else {
+                Log.w(TAG, "Connection priority request " + priority + " was rejected");
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Missing permission to change the connection priority", e);
+        }
+    }
+
+    // --- Timings ---
+
+    private void resetTimings() {
+        for (int i = 0; i < STEP_COUNT; i++) {
+            stepStartNanos[i] = 0;
+            stepDurationNanos[i] = NOT_DONE;
+        }
+    }
+
+    private void beginStep(Step step) {
+        stepStartNanos[step.ordinal()] = System.nanoTime();
+    }
+
+    private void endStep(Step step) {
+        long start = stepStartNanos[step.ordinal()];
+        if (start == 0) return; // Unsolicited update, e.g. the controller renegotiating
+        long duration = System.nanoTime() - start;
+        stepStartNanos[step.ordinal()] = 0;
+        stepDurationNanos[step.ordinal()] = duration;
+        Log.d(TAG, step + " took " + duration / 1_000_000 + " ms");
+        if (step == Step.NOTIFICATIONS) {
+            Log.i(TAG, "Link ready: " + formatTimings());
+        }
+    }
+
+    /** Duration of the last run of a step in nanoseconds, or -1 if it has not completed. */
+    public long getStepNanos(Step step) {
+        return stepDurationNanos[step.ordinal()];
+    }
+
+    /** From connectGatt() to the first input report, or -1 if none arrived yet. */
+    public long getTimeToFirstReportNanos() {
+        return timeToFirstReportNanos;
+    }
+
+    /** From losing the link to the first report after reconnecting, for the last reconnect, or -1. */
+    public long getLastReconnectNanos() {
+        return lastReconnectNanos;
+    }
+
+    public int getReconnects() {
+        return reconnects;
+    }
+
+    public boolean isHighPriority() {
+        return highPriority;
+    }
+
+    public int getConnectionIntervalMicros() {
+        return connectionIntervalMicros;
+    }
+
+    public int getPriorityChanges() {
+        return priorityChanges;
+    }
+
+    private static String priorityName(int priority) {
+        switch (priority) {
+            case BluetoothGatt.CONNECTION_PRIORITY_HIGH: return "high";
+            case BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER: return "low_power";
+            default: return "balanced";
+        }
+    }
+
+    public String formatTimings() {
+        StringBuilder sb = new StringBuilder();
+        for (Step step : Step.values()) {
+            long duration = stepDurationNanos[step.ordinal()];
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(step.name().toLowerCase()).append('=');
+            sb.append(duration == NOT_DONE ? "-" : duration / 1_000_000 + "ms");
+        }
+        sb.append(" priority=").append(priorityName(highPriority ? activePriority
+                : BluetoothGatt.CONNECTION_PRIORITY_BALANCED));
+        if (connectionIntervalMicros > 0) {
+            sb.append(" interval=").append(connectionIntervalMicros / 1000.0).append("ms");
+        }
+        sb.append(" phy=").append(txPhy).append('/').append(rxPhy);
+        if (timeToFirstReportNanos != NOT_DONE) {
+            sb.append(" first_report=").append(timeToFirstReportNanos / 1_000_000).append("ms");
+        }
+        sb.append(" reconnects=").append(reconnects);
+        if (lastReconnectNanos != NOT_DONE) {
+            sb.append(" last_reconnect=").append(lastReconnectNanos / 1_000_000).append("ms");
+        }
+        return sb.toString();
+    }
+}
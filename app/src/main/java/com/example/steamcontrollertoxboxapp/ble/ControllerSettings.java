@@ -0,0 +1,129 @@
+package com.example.steamcontrollertoxboxapp.ble;
+
+import android.bluetooth.BluetoothGatt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration sent to the controller as feature reports once notifications
+ * are enabled, and again after every reconnect since the controller forgets it.
+ *
+ * Lizard mode is the controller's built-in keyboard/mouse emulation, active
+ * until a host clears its mappings; left on, the right pad moves the phone's
+ * cursor and some buttons type keys alongside our gamepad events. The IMU
+ * only streams gyro and accelerometer data in the input reports once enabled.
+ *
+ * Feature report layout as used by the Linux hid-steam driver: command byte,
+ * payload length, payload. Register writes carry (register, value low, value
+ * high) triples. Command and register numbers: VERIFY against the firmware.
+ */
+public class ControllerSettings {
+    // Feature report commands
+    static final int CMD_CLEAR_MAPPINGS = 0x81;
+    static final int CMD_DEFAULT_MAPPINGS = 0x85;
+    static final int CMD_WRITE_REGISTER = 0x87;
+    static final int CMD_DEFAULT_MOUSE = 0x8e;
+
+    // Registers
+    static final int REG_LEFT_PAD_MODE = 0x07;
+    static final int REG_RIGHT_PAD_MODE = 0x08;
+    static final int REG_RIGHT_PAD_MARGIN = 0x18;
+    static final int REG_IMU_MODE = 0x30;
+
+    static final int PAD_MODE_NONE = 0x07; // No mouse or scroll emulation
+    static final int IMU_ORIENTATION = 0x04;
+    static final int IMU_ACCEL = 0x08;
+    static final int IMU_GYRO = 0x10;
+
+    public static final ControllerSettings DEFAULT = new ControllerSettings(false, true, false, 8);
+    /** What the controller does without a host configuring it. */
+    public static final ControllerSettings LIZARD = new ControllerSettings(true, false, false, 15);
+
+    public final boolean lizardMode;
+    public final boolean gyroEnabled;
+    public final boolean accelEnabled;
+    /**
+     * Desired time between input reports. Over BLE the controller sends at most one
+     * report per connection event, so this selects the connection priority.
+     */
+    public final int reportIntervalMillis;
+
+    public ControllerSettings(boolean lizardMode, boolean gyroEnabled, boolean accelEnabled, int reportIntervalMillis) {
+        if (reportIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Report interval must be positive");
+        }
+        this.lizardMode = lizardMode;
+        this.gyroEnabled = gyroEnabled;
+        this.accelEnabled = accelEnabled;
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    public ControllerSettings withLizardMode(boolean enabled) {
+        return new ControllerSettings(enabled, gyroEnabled, accelEnabled, reportIntervalMillis);
+    }
+
+    public ControllerSettings withImu(boolean gyro, boolean accel) {
+        return new ControllerSettings(lizardMode, gyro, accel, reportIntervalMillis);
+    }
+
+    public ControllerSettings withReportIntervalMillis(int intervalMillis) {
+        return new ControllerSettings(lizardMode, gyroEnabled, accelEnabled, intervalMillis);
+    }
+
+    /**
+     * Connection priority giving at least the requested report rate: HIGH is a
+     * 7.5-15 ms interval, BALANCED 30-50 ms, LOW_POWER 100-125 ms.
+     */
+    public int getConnectionPriority() {
+        if (reportIntervalMillis < 30) {
+            return BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+        }
+        return reportIntervalMillis < 100 ? BluetoothGatt.CONNECTION_PRIORITY_BALANCED
+                : BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+    }
+
+    /** The feature reports applying these settings, in the order they must be sent. */
+    List<byte[]> toFeatureReports() {
+        List<byte[]> reports = new ArrayList<>(3);
+        int imuMode = (gyroEnabled ? IMU_GYRO | IMU_ORIENTATION : 0) | (accelEnabled ? IMU_ACCEL : 0);
+        if (lizardMode) {
+            reports.add(command(CMD_DEFAULT_MAPPINGS));
+            reports.add(command(CMD_DEFAULT_MOUSE));
+            reports.add(writeRegisters(REG_IMU_MODE, imuMode));
+        } else {
+            reports.add(command(CMD_CLEAR_MAPPINGS));
+            reports.add(writeRegisters(
+                    REG_LEFT_PAD_MODE, PAD_MODE_NONE,
+                    REG_RIGHT_PAD_MODE, PAD_MODE_NONE,
+                    REG_RIGHT_PAD_MARGIN, 0,
+                    REG_IMU_MODE, imuMode));
+        }
+        return reports;
+    }
+
+    private static byte[] command(int command) {
+        return new byte[] { (byte) command, 0 };
+    }
+
+    /** @param registerValues register, value pairs */
+    private static byte[] writeRegisters(int... registerValues) {
+        int count = registerValues.length / 2;
+        byte[] report = new byte[2 + 3 * count];
+        report[0] = (byte) CMD_WRITE_REGISTER;
+        report[1] = (byte) (3 * count);
+        for (int i = 0; i < count; i++) {
+            int value = registerValues[2 * i + 1];
+            report[2 + 3 * i] = (byte) registerValues[2 * i];
+            report[3 + 3 * i] = (byte) value;
+            report[4 + 3 * i] = (byte) (value >> 8);
+        }
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        return "ControllerSettings{lizard=" + lizardMode + ", gyro=" + gyroEnabled + ", accel=" + accelEnabled
+                + ", interval=" + reportIntervalMillis + "ms}";
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.steamcontrollertoxboxapp.ble;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.UUID;
+
+/**
+ * Runs GATT operations one at a time. Android keeps a single GATT operation in
+ * flight per connection and rejects anything issued before the previous
+ * callback arrived, so every request goes through here and the next one starts
+ * when the callback of the current one completes it, or its timeout expires.
+ *
+ * Characteristic writes can be coalesced: a write to a characteristic that is
+ * still waiting in the queue replaces that write's value instead of queueing
+ * another one, so a burst of haptic or feature reports collapses into the
+ * latest state.
+ *
+ * GATT callbacks carry no request id, only the operation type and target. Each
+ * started operation gets a sequence number, and one that timed out is kept as
+ * abandoned until its late callback shows up: the next completion of the same
+ * type and target is matched to the oldest abandoned operation and ignored
+ * instead of completing the current one. If the stack really did drop the
+ * abandoned operation, the current one times out in turn, which is cheaper
+ * than running the queue ahead of the stack.
+ *
+ * Everything runs on the given handler; {@link #complete} may be called from
+ * the GATT callback threads.
+ */
+class GattOperationQueue {
+    private static final String TAG = "GattOperationQueue";
+    // Timed-out operations still expecting a late callback; older ones are forgotten
+    private static final int MAX_ABANDONED = 4;
+
+    enum Type { REQUEST_MTU, DISCOVER_SERVICES, WRITE_DESCRIPTOR, WRITE_CHARACTERISTIC }
+
+    /** Issues the operation. @return false if Android refused to start it. */
+    interface Starter {
+        boolean start(BluetoothGatt gatt, byte[] value);
+    }
+
+    static final class Operation {
+        final Type type;
+        final UUID target; // Characteristic or descriptor, null for connection-wide operations
+        final long timeoutMillis;
+        final Starter starter;
+        final Runnable onFailure; // Optional, runs if the operation cannot start or times out
+        byte[] value;
+        boolean coalescable; // Queued through enqueueCoalesced(), its value may be replaced
+        long sequence; // Assigned when started
+
+        Operation(Type type, UUID target, byte[] value, long timeoutMillis, Starter starter, Runnable onFailure) {
+            this.type = type;
+            this.target = target;
+            this.value = value;
+            this.timeoutMillis = timeoutMillis;
+            this.starter = starter;
+            this.onFailure = onFailure;
+        }
+
+        @Override
+        public String toString() {
+            return (target != null ? type + " " + target : type.toString()) + " #" + sequence;
+        }
+    }
+
+    private final Handler handler;
+    private final ArrayDeque<Operation> pending = new ArrayDeque<>();
+    private BluetoothGatt gatt;
+    private Operation current;
+    private long nextSequence = 1;
+    private final ArrayDeque<Operation> abandoned = new ArrayDeque<>(MAX_ABANDONED);
+    private final Runnable timeout = this::onTimeout;
+
+    private volatile long completedOperations = 0;
+    private volatile long failedOperations = 0;
+    private volatile long timedOutOperations = 0;
+    private volatile long coalescedWrites = 0;
+    private volatile long lateCompletions = 0;
+
+    GattOperationQueue(Handler handler) {
+        this.handler = handler;
+    }
+
+    /** Binds the queue to a new connection, dropping anything left from the previous one. */
+    void attach(BluetoothGatt connectedGatt) {
+        handler.post(() -> {
+            clearInternal();
+            gatt = connectedGatt;
+        });
+    }
+
+    /** Drops the current and all pending operations, e.g. after a disconnect. */
+    void clear() {
+        handler.post(() -> {
+            clearInternal();
+            gatt = null;
+        });
+    }
+
+    void enqueue(Operation operation) {
+        handler.post(() -> {
+            pending.addLast(operation);
+            startNext();
+        });
+    }
+
+    /**
+     * Queues a characteristic write, or replaces the value of a write to the same
+     * characteristic that has not started yet. Writes queued with {@link #enqueue}
+     * are never replaced, so a sequence of distinct commands to one characteristic
+     * all go out.
+     */
+    void enqueueCoalesced(Operation write) {
+        handler.post(() -> {
+            write.coalescable = true;
+            for (Operation queued : pending) {
+                if (queued.coalescable && queued.type == write.type && write.target.equals(queued.target)) {
+                    queued.value = write.value;
+                    coalescedWrites++;
+                    return;
+                }
+            }
+            pending.addLast(write);
+            startNext();
+        });
+    }
+
+    /**
+     * Called from the GATT callbacks. Completes the current operation if it is of
+     * this type and target and no abandoned one is owed this callback, and starts
+     * the next one.
+     */
+    void complete(Type type, UUID target, int status) {
+        handler.post(() -> {
+            for (Operation late : abandoned) {
+                if (matches(late, type, target)) {
+                    abandoned.remove(late);
+                    lateCompletions++;
+                    Log.w(TAG, "Ignoring late completion of " + late + " with status " + status);
+                    return;
+                }
+            }
+            Operation operation = current;
+            if (operation == null || !matches(operation, type, target)) {
+                Log.d(TAG, "Ignoring unsolicited completion of " + type);
+                return;
+            }
+            handler.removeCallbacks(timeout);
+            current = null;
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                completedOperations++;
+            } else {
+                failedOperations++;
+                Log.w(TAG, operation + " completed with status " + status);
+            }
+            startNext();
+        });
+    }
+
+    private static boolean matches(Operation operation, Type type, UUID target) {
+        return operation.type == type && (operation.target == null || operation.target.equals(target));
+    }
+
+    private void startNext() {
+        while (current == null && gatt != null && !pending.isEmpty()) {
+            Operation operation = pending.pollFirst();
+            operation.sequence = nextSequence++;
+            boolean started;
+            try {
+                started = operation.starter.start(gatt, operation.value);
+            } catch (SecurityException e) {
+                Log.e(TAG, "Missing permission for " + operation, e);
+                started = false;
+            }
+            if (started) {
+                current = operation;
+                handler.postDelayed(timeout, operation.timeoutMillis);
+            } else {
+                failedOperations++;
+                Log.w(TAG, "Failed to start " + operation);
+                fail(operation);
+            }
+        }
+    }
+
+    private void onTimeout() {
+        Operation operation = current;
+        if (operation == null) return;
+        current = null;
+        timedOutOperations++;
+        Log.w(TAG, operation + " timed out after " + operation.timeoutMillis + " ms");
+        if (abandoned.size() == MAX_ABANDONED) {
+            abandoned.removeFirst();
+        }
+        abandoned.addLast(operation);
+        fail(operation);
+        startNext();
+    }
+
+    private void fail(Operation operation) {
+        if (operation.onFailure != null) {
+            operation.onFailure.run();
+        }
+    }
+
+    private void clearInternal() {
+        handler.removeCallbacks(timeout);
+        current = null;
+        abandoned.clear(); // Callbacks of the old connection do not reach a new one
+        if (!pending.isEmpty()) {
+            Log.d(TAG, "Dropping " + pending.size() + " pending operations");
+            pending.clear();
+        }
+    }
+
+    long getCompletedOperations() {
+        return completedOperations;
+    }
+
+    long getFailedOperations() {
+        return failedOperations;
+    }
+
+    long getTimedOutOperations() {
+        return timedOutOperations;
+    }
+
+    long getCoalescedWrites() {
+        return coalescedWrites;
+    }
+
+    long getLateCompletions() {
+        return lateCompletions;
+    }
+
+    String formatStats() {
+        return "completed=" + completedOperations + " failed=" + failedOperations
+                + " timeouts=" + timedOutOperations + " late=" + lateCompletions
+                + " coalesced=" + coalescedWrites;
+    }
+}
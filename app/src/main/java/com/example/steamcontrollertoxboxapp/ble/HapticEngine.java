@@ -0,0 +1,225 @@
+package com.example.steamcontrollertoxboxapp.ble;
+
+import android.os.Handler;
+
+import com.example.steamcontrollertoxboxapp.core.HapticSink;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends trackpad haptic pulses as Steam Controller haptic feature reports.
+ *
+ * Requests arrive from the input pipeline and only go into a small priority
+ * heap: one tryLock, dropped if the flush holds the lock or the heap is full,
+ * so the notification path never waits. Once per BLE connection interval the
+ * handler drains the heap and merges the requests per pad into the highest
+ * priority one, since the controller cannot play more than one pulse per pad
+ * within an interval anyway. A token bucket caps what reaches the link at
+ * {@link #MAX_PULSES_PER_SECOND}; haptic writes share the link with input
+ * notifications and must not crowd them out.
+ */
+public class HapticEngine implements HapticSink {
+    /** Writes one feature report; must not block. */
+    interface ReportWriter {
+        boolean write(byte[] report);
+    }
+
+    static final int CMD_HAPTIC_PULSE = 0x8f;
+    static final int HEAP_CAPACITY = 16;
+    static final int MAX_PULSES_PER_SECOND = 40;
+    static final int BURST = 4;
+    static final int DEFAULT_INTERVAL_MICROS = 15000; // Until the link reports its own
+    // One short pulse: half-period 1 ms, single repetition (VERIFY against the firmware)
+    private static final int PULSE_PERIOD_MICROS = 1000;
+    private static final int PULSE_COUNT = 1;
+    private static final int PAD_COUNT = 2;
+
+    private final Handler handler;
+    private final BleLinkManager linkManager;
+    private final ReportWriter writer;
+
+    // Binary max-heap of encoded requests: priority, then pad, then amplitude
+    private final ReentrantLock heapLock = new ReentrantLock();
+    private final long[] heap = new long[HEAP_CAPACITY];
+    private int heapSize = 0;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final Runnable flush = this::flush;
+    private volatile boolean enabled = false;
+
+    // Handler thread only
+    private final int[] padAmplitude = new int[PAD_COUNT];
+    private double tokens = BURST;
+    private long lastRefillNanos = System.nanoTime();
+
+    // Counted on the report thread and the handler thread
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    HapticEngine(Handler handler, BleLinkManager linkManager, ReportWriter writer) {
+        this.handler = handler;
+        this.linkManager = linkManager;
+        this.writer = writer;
+    }
+
+    @Override
+    public boolean requestPulse(int pad, int amplitude, int priority) {
+        requested.incrementAndGet();
+        if (!enabled || pad < 0 || pad >= PAD_COUNT) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (!heapLock.tryLock()) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        try {
+            if (heapSize == HEAP_CAPACITY) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            push(encode(priority, pad, amplitude));
+        } finally {
+            heapLock.unlock();
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(flush, intervalMillis());
+        }
+        return true;
+    }
+
+    /** Pulses are only accepted while connected; disabling drops what is pending. */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            heapLock.lock();
+            try {
+                dropped.addAndGet(heapSize);
+                heapSize = 0;
+            } finally {
+                heapLock.unlock();
+            }
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        for (int pad = 0; pad < PAD_COUNT; pad++) {
+            padAmplitude[pad] = -1;
+        }
+        heapLock.lock();
+        try {
+            // Highest priority first, so the first request seen for a pad is the one kept
+            while (heapSize > 0) {
+                long request = pop();
+                int pad = padOf(request);
+                if (padAmplitude[pad] < 0) {
+                    padAmplitude[pad] = amplitudeOf(request);
+                } else {
+                    merged.incrementAndGet();
+                }
+            }
+        } finally {
+            heapLock.unlock();
+        }
+
+        refillTokens();
+        for (int pad = 0; pad < PAD_COUNT; pad++) {
+            if (padAmplitude[pad] < 0) continue;
+            if (tokens < 1 || !enabled) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            if (writer.write(buildPulseReport(pad, padAmplitude[pad], PULSE_PERIOD_MICROS, PULSE_COUNT))) {
+                tokens--;
+                sent.incrementAndGet();
+            } else {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void refillTokens() {
+        long now = System.nanoTime();
+        tokens = Math.min(BURST, tokens + (now - lastRefillNanos) * MAX_PULSES_PER_SECOND / 1e9);
+        lastRefillNanos = now;
+    }
+
+    private long intervalMillis() {
+        int micros = linkManager.getConnectionIntervalMicros();
+        return Math.max(1, (micros > 0 ? micros : DEFAULT_INTERVAL_MICROS) / 1000);
+    }
+
+    /** Haptic pulse feature report: command, length, pad, then amplitude, period and count as little-endian u16. */
+    static byte[] buildPulseReport(int pad, int amplitude, int periodMicros, int count) {
+        return new byte[] {
+                (byte) CMD_HAPTIC_PULSE, 7, (byte) pad,
+                (byte) amplitude, (byte) (amplitude >> 8),
+                (byte) periodMicros, (byte) (periodMicros >> 8),
+                (byte) count, (byte) (count >> 8)
+        };
+    }
+
+    // --- Heap, guarded by heapLock ---
+
+    private static long encode(int priority, int pad, int amplitude) {
+        return ((long) priority << 32) | ((long) pad << 16) | (amplitude & 0xFFFF);
+    }
+
+    private static int padOf(long request) {
+        return (int) (request >>> 16) & 0xFFFF;
+    }
+
+    private static int amplitudeOf(long request) {
+        return (int) request & 0xFFFF;
+    }
+
+    private void push(long value) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent] >= value) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heap[child + 1] > heap[child]) child++;
+            if (last >= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0) {
+            heap[i] = last;
+        }
+        return top;
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getMerged() {
+        return merged.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public String formatStats() {
+        return "requested=" + requested.get() + " sent=" + sent.get() + " merged=" + merged.get()
+                + " dropped=" + dropped.get();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.steamcontrollertoxboxapp.ble;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delays between reconnection attempts: exponential from {@code initialDelayMillis}
+ * up to {@code maxDelayMillis}, with "equal jitter" (half the delay fixed, half
+ * random) so several controllers that dropped together do not retry in lockstep.
+ */
+class ReconnectBackoff {
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+    private int attempts = 0;
+
+    /** @param maxAttempts attempts before giving up, 0 for no limit */
+    ReconnectBackoff(long initialDelayMillis, long maxDelayMillis, int maxAttempts) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis || maxAttempts < 0) {
+            throw new IllegalArgumentException("Invalid backoff parameters");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    boolean hasAttemptsLeft() {
+        return maxAttempts == 0 || attempts < maxAttempts;
+    }
+
+    /** Delay before the next attempt; counts the attempt. */
+    long nextDelayMillis() {
+        // Shift capped well below overflow, the max delay is reached long before
+        long delay = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempts, 20));
+        attempts++;
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    /** After a successful connection. */
+    void reset() {
+        attempts = 0;
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.steamcontrollertoxboxapp.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.os.Handler;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scans for controllers and keeps what it saw. Results are batched by the
+ * controller where supported (setReportDelay) instead of waking us for every
+ * advertisement; each device's RSSI is smoothed with a moving average, and
+ * devices not seen for {@link #setTtlMillis TTL} are evicted.
+ *
+ * Listeners get the cache as a snapshot ranked by RSSI, at most once per
+ * {@link #MIN_PUBLISH_INTERVAL_MS}, however many advertisements arrive. The
+ * cache outlives the scan, so a controller seen recently can be connected to
+ * through {@link #getCachedDevice} without scanning again.
+ *
+ * Scanning runs on the given handler; the cache may be read from any thread.
+ */
+public class ScanEngine {
+    private static final String TAG = "ScanEngine";
+
+    static final long REPORT_DELAY_MS = 200;
+    static final long MIN_PUBLISH_INTERVAL_MS = 250;
+    static final long DEFAULT_TTL_MS = 30000;
+    // Weight of a new RSSI sample; advertisements are noisy, single readings jump by 10 dB
+    private static final double RSSI_ALPHA = 0.3;
+
+    private static final class Entry {
+        final BluetoothDevice device;
+        final String address;
+        volatile String name;
+        volatile double rssi;
+        volatile long lastSeenMillis;
+        boolean announced; // onDeviceDiscovered sent during the current scan, handler thread only
+
+        Entry(BluetoothDevice device, String name, int rssi, long now) {
+            this.device = device;
+            this.address = device.getAddress();
+            this.name = name;
+            this.rssi = rssi;
+            this.lastSeenMillis = now;
+        }
+
+        BleDevice toBleDevice() {
+            return new BleDevice(address, name, (int) Math.round(rssi));
+        }
+    }
+
+    private final Handler handler;
+    private final boolean batchingSupported;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private volatile long ttlMillis = DEFAULT_TTL_MS;
+
+    private BluetoothLeScanner scanner;
+    private ScanCallback scanCallback;
+    private AndroidBleManager.ScanListener listener;
+    private long lastPublishMillis = 0;
+    private boolean publishScheduled = false;
+    private final Runnable publish = this::publishNow;
+    private final Runnable timeout = this::onScanTimeout;
+
+    private volatile long resultsReceived = 0;
+    private volatile long batchesReceived = 0;
+    private volatile long snapshotsPublished = 0;
+
+    ScanEngine(Handler handler, boolean batchingSupported) {
+        this.handler = handler;
+        this.batchingSupported = batchingSupported;
+    }
+
+    /** Starts a scan of durationMillis; a scan already running is stopped first. Handler thread only. */
+    void start(BluetoothLeScanner bleScanner, long durationMillis, AndroidBleManager.ScanListener scanListener)
+            throws SecurityException {
+        stop();
+        scanner = bleScanner;
+        listener = scanListener;
+        for (Entry entry : cache.values()) {
+            entry.announced = false;
+        }
+        scanCallback = new ScanCallback() {
+            @Override
+            public void onScanResult(int callbackType, ScanResult result) {
+                onResult(result);
+                schedulePublish();
+            }
+
+            @Override
+            public void onBatchScanResults(List<ScanResult> results) {
+                batchesReceived++;
+                for (ScanResult result : results) {
+                    onResult(result);
+                }
+                schedulePublish();
+            }
+
+            @Override
+            public void onScanFailed(int errorCode) {
+                Log.e(TAG, "BLE Scan Failed with error code: " + errorCode);
+                AndroidBleManager.ScanListener failed = listener;
+                clearScan();
+                if (failed != null) {
+                    failed.onScanFailed(errorCode);
+                }
+            }
+        };
+
+        List<ScanFilter> filters = new ArrayList<>();
+        filters.add(new ScanFilter.Builder()
+                .setServiceUuid(new ParcelUuid(BleDeviceManager.STEAM_CONTROLLER_SERVICE_UUID))
+                .build());
+        ScanSettings.Builder settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY);
+        if (batchingSupported) {
+            settings.setReportDelay(REPORT_DELAY_MS);
+        }
+
+        Log.i(TAG, "Starting BLE scan with Steam Controller service filter"
+                + (batchingSupported ? ", batched every " + REPORT_DELAY_MS + " ms" : ""));
+        try {
+            scanner.startScan(filters, settings.build(), scanCallback);
+        } catch (SecurityException se) {
+            clearScan();
+            throw se;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to scan with service filter, trying without filter", e);
+            try {
+                scanner.startScan(null, settings.build(), scanCallback);
+            } catch (SecurityException se) {
+                clearScan();
+                throw se;
+            } catch (Exception ex) {
+                Log.e(TAG, "Exception when starting scan without filter", ex);
+                clearScan();
+                scanListener.onScanFailed(AndroidBleManager.ERROR_UNKNOWN);
+                return;
+            }
+        }
+        handler.postDelayed(timeout, durationMillis);
+    }
+
+    /** Stops a running scan without reporting it as finished. Handler thread only. */
+    void stop() throws SecurityException {
+        if (scanCallback == null) return;
+        Log.i(TAG, "Stopping BLE scan.");
+        try {
+            // Results still held in the controller's batch would otherwise be lost
+            if (batchingSupported) {
+                scanner.flushPendingScanResults(scanCallback);
+            }
+            scanner.stopScan(scanCallback);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Cannot stop scan, Bluetooth turned off?", e);
+        } finally {
+            clearScan();
+        }
+    }
+
+    boolean isScanning() {
+        return scanCallback != null;
+    }
+
+    private void onScanTimeout() {
+        Log.d(TAG, "Scan duration elapsed, stopping scan");
+        AndroidBleManager.ScanListener finished = listener;
+        stop();
+        if (finished != null) {
+            publishTo(finished);
+            finished.onScanFinished();
+        }
+    }
+
+    private void clearScan() {
+        handler.removeCallbacks(timeout);
+        handler.removeCallbacks(publish);
+        publishScheduled = false;
+        scanCallback = null;
+        scanner = null;
+        listener = null;
+    }
+
+    private void onResult(ScanResult result) {
+        resultsReceived++;
+        BluetoothDevice device = result.getDevice();
+        long now = SystemClock.elapsedRealtime();
+        String name = result.getScanRecord() != null ? result.getScanRecord().getDeviceName() : null;
+        Entry entry = cache.get(device.getAddress());
+        if (entry == null) {
+            entry = new Entry(device, name != null ? name : "Unknown", result.getRssi(), now);
+            cache.put(entry.address, entry);
+            Log.d(TAG, "Device found: " + entry.name + " [" + entry.address + "] rssi=" + result.getRssi());
+            return;
+        }
+        entry.rssi += RSSI_ALPHA * (result.getRssi() - entry.rssi);
+        entry.lastSeenMillis = now;
+        if (name != null) {
+            entry.name = name;
+        }
+    }
+
+    private void schedulePublish() {
+        if (publishScheduled) return;
+        publishScheduled = true;
+        long wait = lastPublishMillis + MIN_PUBLISH_INTERVAL_MS - SystemClock.elapsedRealtime();
+        handler.postDelayed(publish, Math.max(0, wait));
+    }
+
+    private void publishNow() {
+        publishScheduled = false;
+        if (listener != null) {
+            publishTo(listener);
+        }
+    }
+
+    private void publishTo(AndroidBleManager.ScanListener target) {
+        lastPublishMillis = SystemClock.elapsedRealtime();
+        snapshotsPublished++;
+        List<BleDevice> ranked = getRankedDevices();
+        for (Entry entry : cache.values()) {
+            if (!entry.announced) {
+                entry.announced = true;
+                target.onDeviceDiscovered(entry.address, entry.name);
+            }
+        }
+        target.onDevicesUpdated(ranked);
+    }
+
+    /** Cached devices seen within the TTL, strongest signal first. Evicts expired ones. */
+    public List<BleDevice> getRankedDevices() {
+        evictExpired();
+        List<Entry> entries = new ArrayList<>(cache.values());
+        Collections.sort(entries, (a, b) -> Double.compare(b.rssi, a.rssi));
+        List<BleDevice> ranked = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            ranked.add(entry.toBleDevice());
+        }
+        return ranked;
+    }
+
+    /** The device as last seen by a scan, or null if it is not cached or expired. */
+    public BluetoothDevice getCachedDevice(String address) {
+        Entry entry = cache.get(address);
+        if (entry == null || isExpired(entry, SystemClock.elapsedRealtime())) {
+            return null;
+        }
+        return entry.device;
+    }
+
+    /** How long a device stays cached after its last advertisement. */
+    public void setTtlMillis(long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private void evictExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry> it = cache.values().iterator();
+        while (it.hasNext()) {
+            if (isExpired(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.lastSeenMillis > ttlMillis;
+    }
+
+    public String formatStats() {
+        return "cached=" + cache.size() + " results=" + resultsReceived + " batches=" + batchesReceived
+                + " snapshots=" + snapshotsPublished + (batchingSupported ? "" : " (no batching)");
+    }
+}
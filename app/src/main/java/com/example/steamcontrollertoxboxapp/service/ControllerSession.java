@@ -0,0 +1,263 @@
+package com.example.steamcontrollertoxboxapp.service;
+
+import android.bluetooth.BluetoothDevice;
+import android.content.Context;
+import android.util.Log;
+
+import com.example.steamcontrollertoxboxapp.ble.AndroidBleManager;
+import com.example.steamcontrollertoxboxapp.ble.BleLinkManager;
+import com.example.steamcontrollertoxboxapp.ble.ControllerSettings;
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.LatencyHistogram;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.core.OutputScheduler;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputDevicePool;
+import com.example.steamcontrollertoxboxapp.pipeline.BatteryStage;
+import com.example.steamcontrollertoxboxapp.pipeline.HapticTickStage;
+import com.example.steamcontrollertoxboxapp.pipeline.IdleDetector;
+import com.example.steamcontrollertoxboxapp.pipeline.InputPipeline;
+import com.example.steamcontrollertoxboxapp.pipeline.ReportDispatcher;
+import com.example.steamcontrollertoxboxapp.pipeline.SessionWorkerPool;
+import com.example.steamcontrollertoxboxapp.pipeline.StateSnapshotStage;
+import com.example.steamcontrollertoxboxapp.pipeline.TraceStage;
+import com.example.steamcontrollertoxboxapp.trace.TraceRecorder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * One emulated controller: its own BLE link, input pipeline (parser and filter
+ * state), report dispatcher and virtual controller, i.e. its own uinput device.
+ * Owned and driven by {@link EmulationService} on the service handler thread.
+ */
+class ControllerSession {
+    private static final String TAG = "ControllerSession";
+
+    enum State { CONNECTING, CONNECTED }
+
+    private static final SteamControllerParser.XboxOutput NEUTRAL = new SteamControllerParser.XboxOutput();
+
+    private final String address;
+    private final AndroidBleManager bleManager;
+    private final UInputDevicePool devicePool;
+    private final UInputController device;
+    private final VirtualController virtualController;
+    private final ControllerMapper controllerMapper;
+    private final OneEuroFilter axisFilter;
+    private final TraceStage traceStage = new TraceStage();
+    private final BatteryStage batteryStage = new BatteryStage();
+    private final StateSnapshotStage snapshotStage = new StateSnapshotStage();
+    private final HapticTickStage hapticStage;
+    private final InputPipeline pipeline;
+    private final ReportDispatcher reportDispatcher;
+    private final IdleDetector idleDetector;
+    private final int outputRateHz;
+    private volatile ControllerSettings controllerSettings = ControllerSettings.DEFAULT;
+    private volatile PowerMode powerMode = PowerMode.PERFORMANCE;
+    private volatile long inputIdleTimeoutMillis = IdleDetector.DEFAULT_TIMEOUT_MILLIS;
+    private volatile State state = State.CONNECTING;
+
+    ControllerSession(Context context, String address, AndroidBleManager.ConnectionStateCallback callback,
+                      SessionWorkerPool workerPool, UInputDevicePool devicePool, UInputController device,
+                      ReportDispatcher.Mode dispatchMode, int outputRateHz,
+                      FilterProfile filterProfile, LatencyHistogram latencyHistogram,
+                      ReportDispatcher.Listener dispatchListener) {
+        this.address = address;
+        this.bleManager = new AndroidBleManager(context, callback);
+        this.devicePool = devicePool;
+        this.device = device; // Already registered, from the pool
+        this.outputRateHz = outputRateHz;
+        // A positive output rate decouples uinput writes from bursty BLE report timing
+        this.virtualController = outputRateHz > 0 ? new OutputScheduler(device, outputRateHz) : device;
+        this.controllerMapper = new ControllerMapper(virtualController);
+        this.axisFilter = new OneEuroFilter(filterProfile);
+        this.hapticStage = new HapticTickStage(bleManager.getHapticEngine());
+        this.pipeline = InputPipeline.createDefault(traceStage, batteryStage, axisFilter, controllerMapper,
+                virtualController, latencyHistogram, hapticStage, snapshotStage);
+        this.reportDispatcher = new ReportDispatcher(pipeline, dispatchMode, workerPool, dispatchListener);
+        // Stops unchanged reports once the controller is put down; the link relaxes with it
+        this.idleDetector = new IdleDetector(reportDispatcher, bleManager.getLinkManager()::setInputIdle);
+    }
+
+    /**
+     * Controller configuration, reapplied by the BLE manager on every reconnect.
+     * The report interval is raised as far as the power mode requires.
+     */
+    void setControllerSettings(ControllerSettings settings) {
+        controllerSettings = settings;
+        bleManager.setControllerSettings(effectiveSettings());
+    }
+
+    /** Input idle timeout as chosen by the user; lowered as far as the power mode requires. */
+    void setInputIdleTimeoutMillis(long timeoutMillis) {
+        inputIdleTimeoutMillis = timeoutMillis;
+        idleDetector.setTimeoutMillis(powerMode.idleTimeoutMillis(timeoutMillis));
+    }
+
+    /**
+     * Bounds report interval (and with it the connection priority), output rate
+     * and input idle timeout by the mode. Settings are only resent if the
+     * interval changes.
+     */
+    void setPowerMode(PowerMode mode) {
+        if (mode == powerMode) return;
+        ControllerSettings before = effectiveSettings();
+        powerMode = mode;
+        ControllerSettings after = effectiveSettings();
+        if (after.reportIntervalMillis != before.reportIntervalMillis) {
+            bleManager.setControllerSettings(after);
+        }
+        if (virtualController instanceof OutputScheduler) {
+            ((OutputScheduler) virtualController).setRateHz(mode.outputRateHz(outputRateHz));
+        }
+        idleDetector.setTimeoutMillis(mode.idleTimeoutMillis(inputIdleTimeoutMillis));
+    }
+
+    private ControllerSettings effectiveSettings() {
+        ControllerSettings settings = controllerSettings;
+        return settings.withReportIntervalMillis(powerMode.reportIntervalMillis(settings.reportIntervalMillis));
+    }
+
+    /** Last battery voltage reported by the controller in mV, 0 if none yet. */
+    int getControllerVoltageMillivolts() {
+        return batteryStage.getVoltageMillivolts();
+    }
+
+    /** Background connection instead of a direct one; call before {@link #start}. */
+    void setAutoConnect(boolean autoConnect) {
+        bleManager.setAutoConnect(autoConnect);
+    }
+
+    /**
+     * Starts the output scheduler if any, starts dispatching and initiates the BLE connection.
+     * The session becomes CONNECTED through the service's connection callback.
+     *
+     * @param cachedDevice the device as seen by a recent scan, or null to look it up by address
+     */
+    void start(BluetoothDevice cachedDevice) throws SecurityException, IllegalArgumentException {
+        // Connect virtual controller first (requires root)
+        if (!virtualController.initialize()) {
+            throw new IllegalStateException("Failed to create virtual controller for " + address);
+        }
+        Log.i(TAG, "Virtual controller initialized for " + address);
+
+        // Start dispatching before the first notification can arrive
+        reportDispatcher.start();
+        bleManager.connect(address, cachedDevice, idleDetector);
+    }
+
+    void close() {
+        reportDispatcher.stop();
+        stopTraceRecording();
+        try {
+            bleManager.disconnect();
+            bleManager.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Error during BLE disconnect of " + address, e);
+        }
+        try {
+            if (virtualController instanceof OutputScheduler) {
+                ((OutputScheduler) virtualController).stop();
+            }
+            // Neutral state, then kept as a spare or destroyed. Under the dispatcher's sink
+            // lock, so a report still in flight on the GATT thread cannot write after it.
+            reportDispatcher.resetOutput(() -> devicePool.release(device));
+        } catch (Exception e) {
+            Log.e(TAG, "Error releasing virtual controller of " + address, e);
+        }
+    }
+
+    /**
+     * The BLE link dropped and is being re-established. Centers the sticks and
+     * releases everything so nothing stays held in the game meanwhile; the uinput
+     * device stays registered and real input resumes with the first report.
+     */
+    void onLinkLost() {
+        idleDetector.reset(); // The first report after the drop must go through, changed or not
+        reportDispatcher.resetOutput(() -> {
+            axisFilter.reset(); // Do not smooth from the stale pre-drop position
+            try {
+                virtualController.update(NEUTRAL);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Cannot send neutral state to " + address + ": " + e.getMessage());
+            }
+        });
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    ControllerMapper getControllerMapper() {
+        return controllerMapper;
+    }
+
+    InputPipeline getPipeline() {
+        return pipeline;
+    }
+
+    StateSnapshotStage getSnapshotStage() {
+        return snapshotStage;
+    }
+
+    void setTrackpadHapticsEnabled(boolean enabled) {
+        hapticStage.setEnabled(enabled);
+    }
+
+    String getHapticStats() {
+        return bleManager.getHapticEngine().formatStats();
+    }
+
+    /** Applies a new smoothing profile; takes effect with the next report. */
+    void setFilterProfile(FilterProfile profile) {
+        axisFilter.setProfile(profile);
+    }
+
+    /** Starts appending this controller's raw reports to a trace in directory. */
+    void startTraceRecording(File directory) throws IOException {
+        if (traceStage.getRecorder() != null) return;
+        // Addresses contain ':' which is awkward in file names
+        TraceRecorder recorder = new TraceRecorder(directory, address.replace(":", ""));
+        recorder.open();
+        traceStage.setRecorder(recorder);
+    }
+
+    void stopTraceRecording() {
+        TraceRecorder recorder = traceStage.getRecorder();
+        if (recorder == null) return;
+        traceStage.setRecorder(null);
+        recorder.close();
+    }
+
+    TraceRecorder getTraceRecorder() {
+        return traceStage.getRecorder();
+    }
+
+    BleLinkManager getLinkManager() {
+        return bleManager.getLinkManager();
+    }
+
+    String getGattQueueStats() {
+        return bleManager.getGattQueueStats();
+    }
+
+    IdleDetector getIdleDetector() {
+        return idleDetector;
+    }
+
+    ReportDispatcher getReportDispatcher() {
+        return reportDispatcher;
+    }
+}
@@ -21,16 +21,35 @@ import androidx.core.app.NotificationCompat;
 
 import com.example.steamcontrollertoxboxapp.R; // Your R file
 import com.example.steamcontrollertoxboxapp.ble.AndroidBleManager;
-import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.ble.BleDevice;
+import com.example.steamcontrollertoxboxapp.ble.BleLinkManager;
+import com.example.steamcontrollertoxboxapp.ble.ControllerSettings;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.LatencyHistogram;
 import com.example.steamcontrollertoxboxapp.core.SteamControllerDefs;
 import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
-import com.example.steamcontrollertoxboxapp.core.VirtualController;
 import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputDevicePool;
+import com.example.steamcontrollertoxboxapp.pipeline.IdleDetector;
+import com.example.steamcontrollertoxboxapp.pipeline.ReportDispatcher;
+import com.example.steamcontrollertoxboxapp.pipeline.SessionWorkerPool;
+import com.example.steamcontrollertoxboxapp.pipeline.StateSnapshotStage;
+import com.example.steamcontrollertoxboxapp.trace.TraceRecorder;
 import com.example.steamcontrollertoxboxapp.ui.MainActivity;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class EmulationService extends Service implements AndroidBleManager.ConnectionStateCallback {
@@ -42,23 +61,61 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
     private Handler serviceHandler;
     private HandlerThread handlerThread;
 
-    private AndroidBleManager bleManager;
-    private VirtualController virtualController;
-    private ControllerMapper controllerMapper;
-
-    private final BlockingQueue<byte[]> bleDataQueue = new LinkedBlockingQueue<>(128);
-    private volatile boolean isProcessingRunning = false;
-    private Thread processingThread;
+    private AndroidBleManager bleManager; // Scanning only, each session owns its own link
+    // Registered uinput devices ready for new sessions; the root probe device seeds it
+    private UInputDevicePool devicePool;
+
+    // Startup: components come up in parallel, see startComponents()
+    private CompletableFuture<UInputDevicePool> uinputReady;
+    private CompletableFuture<AndroidBleManager> bleReady;
+    private CompletableFuture<ServiceState> readyFuture;
+    private final Map<String, Long> startupPhaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile boolean destroyed = false;
+
+    // One session per emulated controller, keyed by BLE address
+    public static final int MAX_SESSIONS = 4;
+    private final Map<String, ControllerSession> sessions = new ConcurrentHashMap<>();
+    private SessionWorkerPool workerPool;
+    // Optional: process reports inline on the GATT callback thread instead of the queue
+    private volatile boolean directDispatchEnabled = false;
+    // Optional: fixed uinput output rate in Hz, 0 writes each report as it arrives
+    private volatile int outputRateHz = 0;
+    // Adaptive smoothing of stick/trigger jitter, applied to every session
+    private volatile FilterProfile filterProfile = FilterProfile.DEFAULT;
+    private volatile ControllerSettings controllerSettings = ControllerSettings.DEFAULT;
+    private volatile boolean trackpadHapticsEnabled = true;
+    private volatile boolean pipelineTimingEnabled = false;
+    // Raw report traces for offline latency analysis, one bounded set of files per controller
+    private volatile boolean traceRecordingEnabled = false;
+    // Links drop from high to balanced connection priority after this long without input
+    private volatile long linkIdleTimeoutMillis = BleLinkManager.DEFAULT_IDLE_TIMEOUT_MILLIS;
+    // Background (autoConnect) connections: no timeout, reconnect whenever the controller is back in range
+    private volatile boolean autoConnectEnabled = false;
+    // Unchanged input for this long parks processing and output, 0 never idles
+    private volatile long inputIdleTimeoutMillis = IdleDetector.DEFAULT_TIMEOUT_MILLIS;
+    // Performance, balanced or saver, chosen from phone and controller battery and thermal state
+    private PowerModeController powerModeController;
+    private volatile PowerModeController.Listener powerModeListener;
+    // BLE arrival to SYN_REPORT write, or to the scheduler hand-off with a fixed output rate; shared by all sessions
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
 
     public enum ServiceState { INITIALIZING, IDLE, SCANNING, CONNECTING, CONNECTED, FAILED, NO_ROOT }
     private final AtomicReference<ServiceState> currentState = new AtomicReference<>(ServiceState.INITIALIZING);
-    private String connectedDeviceAddress = null;
 
     // --- Binder for Activity Communication ---
     public class LocalBinder extends Binder {
         public EmulationService getService() {
             return EmulationService.this;
         }
+
+        /** End-to-end input latency (p50/p99/p99.9/max) across all connected controllers. */
+        public LatencyHistogram.Snapshot getLatencySnapshot() {
+            return latencyHistogram.snapshot();
+        }
+
+        public void resetLatencyStats() {
+            latencyHistogram.reset();
+        }
     }
 
     @Override
@@ -71,40 +128,132 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
         handlerThread.start();
         Looper serviceLooper = handlerThread.getLooper();
         serviceHandler = new Handler(serviceLooper);
+        workerPool = new SessionWorkerPool(SessionWorkerPool.DEFAULT_WORKER_COUNT);
+        powerModeController = new PowerModeController(this, serviceHandler, this::lowestControllerVoltage,
+                this::applyPowerMode);
+        powerModeController.start();
 
-        // Initialize components on the background thread
-        serviceHandler.post(() -> {
+        // Foreground first: the deadline for it runs from startForegroundService(), not from our init
+        createNotificationChannel();
+        startForeground(NOTIFICATION_ID, createNotification("Initializing..."));
+        startComponents();
+    }
+
+    /**
+     * Brings up the components in parallel: the native library load followed by the
+     * uinput/root probe on one thread, the BLE adapter setup on another. Each
+     * future completes when its component is ready; the service becomes IDLE,
+     * NO_ROOT or FAILED once both are done.
+     */
+    private void startComponents() {
+        long startNanos = System.nanoTime();
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(2, r -> new Thread(r, "ServiceStartup"));
+
+        uinputReady = CompletableFuture
+                .supplyAsync(() -> timePhase("native_load", UInputController::loadNativeLibrary), startupExecutor)
+                .thenApplyAsync(loaded -> timePhase("uinput_probe", () -> createDevicePool(loaded)), startupExecutor);
+        bleReady = CompletableFuture.supplyAsync(
+                () -> timePhase("ble_setup", () -> new AndroidBleManager(this, this)), startupExecutor);
+
+        readyFuture = CompletableFuture.allOf(uinputReady, bleReady).handleAsync((ignored, error) -> {
+            startupExecutor.shutdown();
+            startupPhaseMillis.put("total", (System.nanoTime() - startNanos) / 1_000_000);
+            if (destroyed) {
+                // onDestroy() ran while we were starting; it could not see these yet
+                closeComponents(resultOrNull(uinputReady), resultOrNull(bleReady));
+                return currentState.get();
+            }
+            bleManager = resultOrNull(bleReady);
+            devicePool = resultOrNull(uinputReady);
+            Log.i(TAG, "Startup finished: " + getStartupTimings());
+            if (error != null) {
+                // Also covers a failed native load (UnsatisfiedLinkError) or uinput probe
+                Log.e(TAG, "Failed to initialize components", error);
+                updateState(ServiceState.FAILED);
+            } else if (devicePool == null) {
+                updateState(ServiceState.NO_ROOT);
+            } else {
+                updateState(ServiceState.IDLE);
+            }
+            return currentState.get();
+        }, this::postOrRun);
+    }
+
+    private static <T> T resultOrNull(CompletableFuture<T> future) {
+        return future.isCompletedExceptionally() ? null : future.getNow(null);
+    }
+
+    /** Runs on the service thread, or right here once that has quit during onDestroy(). */
+    private void postOrRun(Runnable task) {
+        if (!serviceHandler.post(task)) {
+            task.run();
+        }
+    }
+
+    private void closeComponents(UInputDevicePool pool, AndroidBleManager manager) {
+        if (manager != null) {
             try {
-                bleManager = new AndroidBleManager(this, this);
-                virtualController = new UInputController(); // This checks root internally
-                controllerMapper = new ControllerMapper(virtualController);
-                Log.i(TAG, "Core components initialized.");
-                
-                // Initial state check after controller init
-                if (virtualController instanceof UInputController) {
-                    // Attempt to connect to uinput immediately to verify root early
-                    try {
-                        ((UInputController) virtualController).initialize();
-                        Log.i(TAG, "Virtual controller initialized successfully (root verified).");
-                        // Don't keep it initialized yet, just verified access
-                        ((UInputController) virtualController).destroy();
-                        updateState(ServiceState.IDLE); // Only set to IDLE if initialization succeeded
-                    } catch (SecurityException se) {
-                        Log.e(TAG, "Root required but not available!");
-                        updateState(ServiceState.NO_ROOT);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Failed to initially connect virtual controller", e);
-                        updateState(ServiceState.FAILED); // Indicate failure
-                    }
-                }
-            } catch (Exception | UnsatisfiedLinkError e) {
-                Log.e(TAG, "Failed to initialize VirtualController (likely missing root or native lib issue)", e);
-                updateState(ServiceState.FAILED); // Or NO_ROOT specifically if identifiable
+                manager.close();
+            } catch (Exception e) {
+                Log.e(TAG, "Error closing BLE Manager", e);
             }
-        });
+        }
+        if (pool != null) {
+            try {
+                pool.close();
+            } catch (Exception e) {
+                Log.e(TAG, "Error closing the virtual device pool", e);
+            }
+        }
+    }
 
-        createNotificationChannel();
-        startForeground(NOTIFICATION_ID, createNotification("Initializing..."));
+    /** @return a pool seeded with the probe device, or null if no uinput device can be created. */
+    private UInputDevicePool createDevicePool(boolean nativeLoaded) {
+        if (!nativeLoaded) {
+            Log.e(TAG, "Failed to initialize VirtualController (likely missing root or native lib issue)");
+            return null;
+        }
+        // Attempt to connect to uinput immediately to verify root early
+        UInputController probe = new UInputController();
+        try {
+            if (!probe.initialize()) {
+                Log.e(TAG, "Cannot create a uinput device, root required but not available?");
+                return null;
+            }
+        } catch (SecurityException se) {
+            Log.e(TAG, "Root required but not available!");
+            return null;
+        }
+        Log.i(TAG, "Virtual controller initialized successfully (root verified).");
+        // Keep the probe device registered as the first spare instead of destroying it
+        UInputDevicePool pool = new UInputDevicePool(UInputController::new, UInputDevicePool.DEFAULT_SPARE_COUNT);
+        if (!pool.offer(probe)) {
+            probe.destroy();
+        }
+        return pool;
+    }
+
+    private <T> T timePhase(String phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            startupPhaseMillis.put(phase, millis);
+            Log.d(TAG, "Startup phase " + phase + " took " + millis + " ms");
+        }
+    }
+
+    /** Completes with the service state (IDLE, NO_ROOT or FAILED) once startup finished. */
+    public CompletableFuture<ServiceState> getReadyFuture() {
+        return readyFuture;
+    }
+
+    /** Duration of each startup phase, in ms. */
+    public String getStartupTimings() {
+        synchronized (startupPhaseMillis) {
+            return startupPhaseMillis.toString();
+        }
     }
 
     @Override
@@ -131,29 +280,18 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
     public void onDestroy() {
         super.onDestroy();
         Log.i(TAG, "Service onDestroy");
-        isProcessingRunning = false; // Signal processing thread to stop
-        if (processingThread != null) {
-            processingThread.interrupt(); // Interrupt if blocked on queue
-        }
+        destroyed = true; // Components still starting up close themselves when done
         serviceHandler.post(() -> {
              Log.d(TAG, "Cleaning up resources on background thread...");
-            if (bleManager != null) {
-                try {
-                    bleManager.close();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error closing BLE Manager", e);
-                }
-                bleManager = null;
-            }
-            if (virtualController != null) {
-                try {
-                    virtualController.destroy();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error closing Virtual Controller", e);
-                }
-                virtualController = null;
+            powerModeController.stop();
+            for (ControllerSession session : sessions.values()) {
+                session.close();
             }
-            controllerMapper = null;
+            sessions.clear();
+            workerPool.shutdown();
+            closeComponents(devicePool, bleManager);
+            bleManager = null;
+            devicePool = null;
              Log.d(TAG, "Resource cleanup finished.");
              // Quit the handler thread's looper safely
              if (handlerThread != null) {
@@ -170,10 +308,239 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
         return currentState.get();
     }
 
+     /** Returns the address of one connected controller, or null if none is connected. */
      public String getConnectedDeviceAddress() {
-         return connectedDeviceAddress;
+         for (ControllerSession session : sessions.values()) {
+             if (session.getState() == ControllerSession.State.CONNECTED) {
+                 return session.getAddress();
+             }
+         }
+         return null;
      }
 
+     public List<String> getConnectedDeviceAddresses() {
+         List<String> addresses = new ArrayList<>();
+         for (ControllerSession session : sessions.values()) {
+             if (session.getState() == ControllerSession.State.CONNECTED) {
+                 addresses.add(session.getAddress());
+             }
+         }
+         return addresses;
+     }
+
+    /**
+     * Live state of a connected controller, for polling from the UI once per frame:
+     * a plain object shared with the pipeline, no binder call or callback per report.
+     * Publishing must be turned on with {@link StateSnapshotStage#setEnabled} while
+     * watched. @return null if the controller is not connected.
+     */
+    public StateSnapshotStage getStateSnapshot(String address) {
+        ControllerSession session = address != null ? sessions.get(address) : null;
+        return session != null && session.getState() == ControllerSession.State.CONNECTED
+                ? session.getSnapshotStage() : null;
+    }
+
+    /**
+     * Enables processing reports inline on the GATT callback thread. Takes effect
+     * immediately for active sessions; a dispatcher may still fall back to
+     * queued mode on its own if its virtual controller is too slow.
+     */
+    public void setDirectDispatchEnabled(boolean enabled) {
+        directDispatchEnabled = enabled;
+        ReportDispatcher.Mode mode = enabled ? ReportDispatcher.Mode.DIRECT : ReportDispatcher.Mode.QUEUED;
+        serviceHandler.post(() -> {
+            for (ControllerSession session : sessions.values()) {
+                session.getReportDispatcher().setMode(mode);
+            }
+        });
+    }
+
+    public boolean isDirectDispatchEnabled() {
+        return directDispatchEnabled;
+    }
+
+    /**
+     * Sets a fixed output rate (e.g. 250, 500 or 1000 Hz) for controllers connected
+     * afterwards. Axes are interpolated/extrapolated between reports; 0 disables it.
+     */
+    public void setOutputRateHz(int rateHz) {
+        if (rateHz < 0) {
+            throw new IllegalArgumentException("Output rate must not be negative: " + rateHz);
+        }
+        outputRateHz = rateHz;
+    }
+
+    public int getOutputRateHz() {
+        return outputRateHz;
+    }
+
+    /** Switches the axis smoothing profile of all current and future controllers. */
+    public void setFilterProfile(FilterProfile profile) {
+        filterProfile = profile;
+        for (ControllerSession session : sessions.values()) {
+            session.setFilterProfile(profile);
+        }
+    }
+
+    public FilterProfile getFilterProfile() {
+        return filterProfile;
+    }
+
+    /**
+     * Lizard mode, IMU and report interval of the controllers. Sent to connected
+     * controllers right away and to every controller on each (re)connection.
+     */
+    public void setControllerSettings(ControllerSettings settings) {
+        controllerSettings = settings;
+        for (ControllerSession session : sessions.values()) {
+            session.setControllerSettings(settings);
+        }
+    }
+
+    public ControllerSettings getControllerSettings() {
+        return controllerSettings;
+    }
+
+    public PowerMode getPowerMode() {
+        return powerModeController.getMode();
+    }
+
+    /** Forces a power mode, or null to choose it from battery and thermal state. */
+    public void setPowerModeOverride(PowerMode mode) {
+        serviceHandler.post(() -> powerModeController.setOverride(mode));
+    }
+
+    /** Recent power mode changes with their timestamps and reasons, oldest first. */
+    public List<PowerModeController.Event> getPowerModeEvents() {
+        return powerModeController.getHistory();
+    }
+
+    /** Called on the service thread after each power mode change. */
+    public void setPowerModeListener(PowerModeController.Listener listener) {
+        powerModeListener = listener;
+    }
+
+    /** Lowest battery voltage among the controllers in mV, 0 if none reported one. */
+    private int lowestControllerVoltage() {
+        int lowest = 0;
+        for (ControllerSession session : sessions.values()) {
+            int millivolts = session.getControllerVoltageMillivolts();
+            if (millivolts > 0 && (lowest == 0 || millivolts < lowest)) {
+                lowest = millivolts;
+            }
+        }
+        return lowest;
+    }
+
+    private void applyPowerMode(PowerModeController.Event event) {
+        for (ControllerSession session : sessions.values()) {
+            session.setPowerMode(event.to);
+        }
+        PowerModeController.Listener listener = powerModeListener;
+        if (listener != null) {
+            listener.onPowerModeChanged(event);
+        }
+    }
+
+    /** Haptic ticks on trackpad ring crossings and D-pad region changes. */
+    public void setTrackpadHapticsEnabled(boolean enabled) {
+        trackpadHapticsEnabled = enabled;
+        for (ControllerSession session : sessions.values()) {
+            session.setTrackpadHapticsEnabled(enabled);
+        }
+    }
+
+    public boolean isTrackpadHapticsEnabled() {
+        return trackpadHapticsEnabled;
+    }
+
+    /** Enables per-stage nanosecond timing in the pipelines of all current and future controllers. */
+    public void setPipelineTimingEnabled(boolean enabled) {
+        pipelineTimingEnabled = enabled;
+        for (ControllerSession session : sessions.values()) {
+            session.getPipeline().setTimingEnabled(enabled);
+        }
+    }
+
+    /** Per-stage timings of a controller's pipeline, or null if it is not connected. */
+    public String getPipelineTimings(String address) {
+        ControllerSession session = sessions.get(address);
+        return session != null ? session.getPipeline().formatTimings() : null;
+    }
+
+    /**
+     * Starts or stops recording raw reports with their arrival times for all current
+     * and future controllers. Traces go to {@link #getTraceDirectory()}.
+     */
+    public void setTraceRecordingEnabled(boolean enabled) {
+        traceRecordingEnabled = enabled;
+        serviceHandler.post(() -> {
+            for (ControllerSession session : sessions.values()) {
+                applyTraceRecording(session);
+            }
+        });
+    }
+
+    public boolean isTraceRecordingEnabled() {
+        return traceRecordingEnabled;
+    }
+
+    public File getTraceDirectory() {
+        return new File(getFilesDir(), "traces");
+    }
+
+    /** Sets how long a controller link stays at high connection priority without input. */
+    public void setLinkIdleTimeoutMillis(long idleTimeoutMillis) {
+        linkIdleTimeoutMillis = idleTimeoutMillis;
+        for (ControllerSession session : sessions.values()) {
+            session.getLinkManager().setIdleTimeoutMillis(idleTimeoutMillis);
+        }
+    }
+
+    public long getLinkIdleTimeoutMillis() {
+        return linkIdleTimeoutMillis;
+    }
+
+    /**
+     * Time without input changes after which a controller counts as idle: its
+     * unchanged reports are no longer processed or written to uinput and its
+     * link relaxes. The first changed report resumes everything. 0 disables it.
+     * BALANCED and SAVER power modes shorten it.
+     */
+    public void setInputIdleTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Idle timeout must not be negative: " + timeoutMillis);
+        }
+        inputIdleTimeoutMillis = timeoutMillis;
+        for (ControllerSession session : sessions.values()) {
+            session.setInputIdleTimeoutMillis(timeoutMillis);
+        }
+    }
+
+    public long getInputIdleTimeoutMillis() {
+        return inputIdleTimeoutMillis;
+    }
+
+    /** Connects future controllers in the background (autoConnect); see {@link AndroidBleManager#setAutoConnect}. */
+    public void setAutoConnectEnabled(boolean enabled) {
+        autoConnectEnabled = enabled;
+    }
+
+    public boolean isAutoConnectEnabled() {
+        return autoConnectEnabled;
+    }
+
+    /** Link setup timings and current connection parameters of a controller, or null if it is not connected. */
+    public String getLinkTimings(String address) {
+        ControllerSession session = sessions.get(address);
+        return session != null ? session.getLinkManager().formatTimings() : null;
+    }
+
+    public ReportDispatcher.Mode getDispatchMode(String address) {
+        ControllerSession session = sessions.get(address);
+        return session != null ? session.getReportDispatcher().getMode() : null;
+    }
+
     public void startScan(long duration, AndroidBleManager.ScanListener callback) {
         if (bleManager == null || currentState.get() == ServiceState.NO_ROOT || currentState.get() == ServiceState.FAILED) {
             Log.w(TAG, "Cannot scan, BLE manager not ready or in error state.");
@@ -192,34 +559,47 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
                         callback.onDeviceDiscovered(address, name);
                     }
 
+                    @Override
+                    public void onDevicesUpdated(List<BleDevice> rankedDevices) {
+                        callback.onDevicesUpdated(rankedDevices);
+                    }
+
                     @Override
                     public void onScanFinished() {
-                        updateState(ServiceState.IDLE);
+                        refreshState();
                         callback.onScanFinished();
                     }
 
                     @Override
                     public void onScanFailed(int errorCode) {
-                        updateState(ServiceState.FAILED);
-                        String errorMsg = "Scan failed: " + getScanErrorString(errorCode);
-                        updateNotification(errorMsg);
+                        refreshState();
+                        reportFailure(null, "Scan failed: " + getScanErrorString(errorCode));
                         callback.onScanFailed(errorCode);
                     }
                 });
             } catch (SecurityException e) {
                 Log.e(TAG, "Scan failed: Missing permissions.", e);
-                updateState(ServiceState.FAILED);
-                updateNotification("Scan failed (Permissions)");
+                refreshState();
+                reportFailure(null, "Scan failed (Permissions)");
                 callback.onScanFailed(AndroidBleManager.ERROR_PERMISSION_DENIED);
             } catch (Exception e) {
                 Log.e(TAG, "Scan failed", e);
-                updateState(ServiceState.FAILED);
-                updateNotification("Scan failed");
+                refreshState();
+                reportFailure(null, "Scan failed");
                 callback.onScanFailed(AndroidBleManager.ERROR_UNKNOWN);
             }
         });
     }
 
+    /**
+     * Controllers seen by recent scans and not yet expired, strongest signal first.
+     * Any of them can be passed to {@link #connectToDevice} without scanning again.
+     */
+    public List<BleDevice> getCachedDevices() {
+        AndroidBleManager manager = bleManager;
+        return manager != null ? manager.getScanEngine().getRankedDevices() : new ArrayList<>();
+    }
+
     private String getScanErrorString(int errorCode) {
         switch (errorCode) {
             case AndroidBleManager.ERROR_PERMISSION_DENIED: return "Permission denied";
@@ -231,7 +611,7 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
     }
 
     public void connectToDevice(String address) {
-         if (bleManager == null || virtualController == null || currentState.get() == ServiceState.NO_ROOT || currentState.get() == ServiceState.FAILED) {
+         if (bleManager == null || devicePool == null || currentState.get() == ServiceState.NO_ROOT || currentState.get() == ServiceState.FAILED) {
              Log.w(TAG, "Cannot connect, core components not ready or in error state.");
              if (currentState.get() == ServiceState.NO_ROOT) updateNotification("Cannot connect: Root required");
              else updateNotification("Cannot connect: Service error");
@@ -239,126 +619,145 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
          }
 
         serviceHandler.post(() -> {
-            if (currentState.get() == ServiceState.CONNECTED && address.equals(connectedDeviceAddress)) {
-                 Log.w(TAG, "Already connected to " + address);
+            if (sessions.containsKey(address)) {
+                 Log.w(TAG, "Already connected or connecting to " + address);
                  return;
             }
-
-            // Disconnect previous if any (ensure clean state)
-            if (currentState.get() == ServiceState.CONNECTED || currentState.get() == ServiceState.CONNECTING) {
-                 disconnectDeviceInternal();
+            if (sessions.size() >= MAX_SESSIONS) {
+                 Log.w(TAG, "Cannot connect to " + address + ", already emulating " + MAX_SESSIONS + " controllers.");
+                 updateNotification("Cannot connect: " + MAX_SESSIONS + " controllers already connected");
+                 return;
             }
 
-             updateState(ServiceState.CONNECTING);
-             updateNotification("Connecting to " + address + "...");
              Log.i(TAG, "Initiating connection to " + address);
+             ReportDispatcher.Mode mode = directDispatchEnabled ? ReportDispatcher.Mode.DIRECT : ReportDispatcher.Mode.QUEUED;
+             // A ready device from the pool, so the connection does not wait for UI_DEV_CREATE
+             UInputController device = devicePool.acquire();
+             if (device == null) {
+                 Log.e(TAG, "Failed to create virtual controller for " + address);
+                 reportFailure(address, "Connection failed");
+                 return;
+             }
+             ControllerSession session = new ControllerSession(this, address, this, workerPool, devicePool, device,
+                     mode, outputRateHz, filterProfile, latencyHistogram, createDispatchListener(address));
+             session.getPipeline().setTimingEnabled(pipelineTimingEnabled);
+             session.getLinkManager().setIdleTimeoutMillis(linkIdleTimeoutMillis);
+             session.setInputIdleTimeoutMillis(inputIdleTimeoutMillis);
+             session.setAutoConnect(autoConnectEnabled);
+             session.setPowerMode(powerModeController.getMode());
+             session.setControllerSettings(controllerSettings);
+             session.setTrackpadHapticsEnabled(trackpadHapticsEnabled);
+             applyTraceRecording(session);
+             sessions.put(address, session);
+             refreshState();
+             updateNotification("Connecting to " + address + "...");
              try {
-                 // Connect virtual controller first (requires root)
-                 virtualController.initialize();
-                 Log.i(TAG, "Virtual controller initialized for emulation.");
-
-                 // Connect BLE device
-                 bleManager.connect(address, bleDataQueue::offer); // Offer data to the queue
-                 connectedDeviceAddress = address;
-
-                  // Start the processing thread if not already running
-                 startProcessingThread();
-
                  // State will be updated to CONNECTED via BLE callback
-                 // updateState(ServiceState.CONNECTED); // Don't set here, wait for callback
-                 // updateNotification("Connected to " + address);
-
+                 // A controller seen by a recent scan is connected to as advertised, no new scan needed
+                 session.start(bleManager.getScanEngine().getCachedDevice(address));
              } catch (SecurityException e) {
                  Log.e(TAG, "Connection failed: Missing permissions or Root required.", e);
-                 updateState(ServiceState.FAILED); // Or NO_ROOT?
-                 updateNotification("Connection failed (Permissions/Root)");
-                 disconnectDeviceInternal(); // Clean up partial connection
+                 disconnectDeviceInternal(address); // Clean up partial connection
+                 reportFailure(address, "Connection failed (Permissions/Root)");
              } catch (Exception e) {
                  Log.e(TAG, "Connection failed", e);
-                 updateState(ServiceState.FAILED);
-                 updateNotification("Connection failed");
-                 disconnectDeviceInternal(); // Clean up partial connection
+                 disconnectDeviceInternal(address); // Clean up partial connection
+                 reportFailure(address, "Connection failed");
              }
         });
     }
 
+    /** Disconnects all controllers. */
     public void disconnectDevice() {
          Log.i(TAG, "Disconnect requested by UI.");
-        serviceHandler.post(this::disconnectDeviceInternal);
+        serviceHandler.post(() -> {
+            for (String address : new ArrayList<>(sessions.keySet())) {
+                disconnectDeviceInternal(address);
+            }
+        });
+    }
+
+    public void disconnectDevice(String address) {
+         Log.i(TAG, "Disconnect of " + address + " requested by UI.");
+        serviceHandler.post(() -> disconnectDeviceInternal(address));
     }
 
 
     // --- Internal Methods ---
 
-    private void disconnectDeviceInternal() {
-         Log.i(TAG, "disconnectDeviceInternal called.");
-        isProcessingRunning = false; // Signal processing thread to stop
-         if (processingThread != null) {
-             processingThread.interrupt(); // Interrupt if blocked
-             processingThread = null; // Clear reference
-         }
-         bleDataQueue.clear(); // Clear any pending data
+    private void applyTraceRecording(ControllerSession session) {
+        if (!traceRecordingEnabled) {
+            session.stopTraceRecording();
+            return;
+        }
+        try {
+            session.startTraceRecording(getTraceDirectory());
+        } catch (Exception e) {
+            // Tracing is diagnostics only, never fail the connection over it
+            Log.e(TAG, "Failed to start trace recording for " + session.getAddress(), e);
+        }
+    }
 
-         if (bleManager != null && bleManager.isConnected()) {
-             try {
-                 bleManager.disconnect(); // Disconnect BLE
-             } catch (Exception e) {
-                  Log.e(TAG, "Error during BLE disconnect", e);
-             }
-         }
-         if (virtualController != null) {
-              try {
-                  virtualController.destroy(); // Destroy virtual device
-              } catch (Exception e) {
-                   Log.e(TAG, "Error during virtual controller disconnect", e);
-              }
-         }
-         updateState(ServiceState.IDLE);
-         updateNotification("Disconnected");
-         connectedDeviceAddress = null;
-    }
-
-     private void startProcessingThread() {
-         if (isProcessingRunning) return; // Already running
-
-         isProcessingRunning = true;
-         processingThread = new Thread(() -> {
-             Log.i(TAG, "Data processing thread started.");
-             while (isProcessingRunning) {
-                 try {
-                     byte[] rawData = bleDataQueue.take(); // Blocks until data is available
-                     if (!isProcessingRunning) break; // Check again after waking up
-
-                     SteamControllerParser.XboxOutput xboxOutput = SteamControllerParser.parseInput(rawData);
-                     
-                     if (xboxOutput != null && virtualController != null) {
-                         try {
-                             virtualController.update(xboxOutput);
-                         } catch (IllegalStateException ise) {
-                             Log.w(TAG, "Failed to update virtual controller: " + ise.getMessage());
-                             disconnectDeviceInternal();
-                         } catch (Exception e) {
-                             Log.e(TAG, "Error updating virtual controller", e);
-                         }
-                     }
-                     // Ignore ConnectionEvents here, handled by BLE manager callbacks setting service state
-
-                 } catch (InterruptedException e) {
-                     Log.i(TAG, "Processing thread interrupted.");
-                     isProcessingRunning = false; // Ensure loop terminates
-                     Thread.currentThread().interrupt();
-                 } catch (Exception e) {
-                     // Catch unexpected errors during parsing or processing
-                     Log.e(TAG, "Unexpected error in processing thread", e);
-                 }
-             }
-              Log.i(TAG, "Data processing thread finished.");
-         }, "BleDataProcessor");
-         processingThread.start();
-     }
+    private void disconnectDeviceInternal(String address) {
+         Log.i(TAG, "disconnectDeviceInternal called for " + address);
+         ControllerSession session = sessions.remove(address);
+         if (session == null) return;
+         session.close(); // Stops processing, disconnects BLE and destroys the virtual device
+         refreshState();
+         updateNotification(sessions.isEmpty() ? "Disconnected" : describeSessions());
+    }
+
+    private ReportDispatcher.Listener createDispatchListener(String address) {
+        return new ReportDispatcher.Listener() {
+            @Override
+            public void onSinkFailed(Exception e) {
+                // May be called on the GATT callback thread in direct mode
+                serviceHandler.post(() -> disconnectDeviceInternal(address));
+            }
+
+            @Override
+            public void onFallbackToQueued(long lastDispatchNanos) {
+                Log.w(TAG, "Direct dispatch too slow for " + address + " (" + lastDispatchNanos / 1000 + " us), now using queued mode.");
+            }
+        };
+    }
+
+    /**
+     * Derives the service state from the sessions: CONNECTED wins over CONNECTING wins over IDLE.
+     * FAILED and NO_ROOT are only set by startup; a failed scan or connection is reported
+     * through {@link #reportFailure} and leaves the service usable.
+     */
+    private void refreshState() {
+        ServiceState aggregate = ServiceState.IDLE;
+        for (ControllerSession session : sessions.values()) {
+            if (session.getState() == ControllerSession.State.CONNECTED) {
+                aggregate = ServiceState.CONNECTED;
+                break;
+            }
+            aggregate = ServiceState.CONNECTING;
+        }
+        if (currentState.get() != aggregate) {
+            updateState(aggregate);
+        }
+    }
+
+    private String describeSessions() {
+        List<String> connected = getConnectedDeviceAddresses();
+        if (connected.isEmpty()) {
+            return "Connecting...";
+        }
+        if (connected.size() == 1) {
+            return "Connected to " + connected.get(0);
+        }
+        return "Emulating " + connected.size() + " controllers";
+    }
 
     public interface StateListener {
         void onStateChanged(ServiceState newState);
+
+        /** A scan (address null) or a connection failed; the service state is not affected. */
+        default void onFailure(String address, String message) {
+        }
     }
     
     private StateListener stateListener;
@@ -367,6 +766,15 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
         this.stateListener = listener;
     }
 
+    /** Shows a failed scan or connection in the notification and tells the listener. */
+    private void reportFailure(String address, String message) {
+        updateNotification(message);
+        StateListener listener = stateListener;
+        if (listener != null) {
+            listener.onFailure(address, message);
+        }
+    }
+
     private void updateState(ServiceState newState) {
          ServiceState oldState = currentState.getAndSet(newState);
          Log.i(TAG, "Service state changed: " + oldState + " -> " + newState);
@@ -375,6 +783,51 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
          }
     }
 
+    // --- Diagnostics (adb shell dumpsys activity service EmulationService) ---
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("State: " + currentState.get());
+        // With a fixed output rate the emit stage only hands the state to the scheduler,
+        // which writes it up to one output period (plus interpolation delay) later
+        String end = outputRateHz > 0 ? "scheduler hand-off" : "uinput write";
+        writer.println("Latency (BLE arrival -> " + end + "): " + latencyHistogram.snapshot());
+        writer.println("Startup (ms): " + getStartupTimings());
+        writer.println("Power: " + powerModeController.formatStats());
+        for (PowerModeController.Event event : powerModeController.getHistory()) {
+            writer.println("  " + event);
+        }
+        writer.println("Sessions: " + sessions.size() + "/" + MAX_SESSIONS);
+        AndroidBleManager scanManager = bleManager;
+        if (scanManager != null) {
+            writer.println("Scan: " + scanManager.getScanEngine().formatStats());
+        }
+        UInputDevicePool pool = devicePool;
+        if (pool != null) {
+            writer.println("Device pool: spares=" + pool.getSpareCount() + " hits=" + pool.getHits()
+                    + " misses=" + pool.getMisses());
+        }
+        for (ControllerSession session : sessions.values()) {
+            ReportDispatcher dispatcher = session.getReportDispatcher();
+            writer.println("  " + session.getAddress() + " " + session.getState()
+                    + " mode=" + dispatcher.getMode()
+                    + " dropped=" + dispatcher.getDroppedReports()
+                    + " fallbacks=" + dispatcher.getFallbackCount());
+            writer.println("    link " + session.getLinkManager().formatTimings());
+            writer.println("    gatt " + session.getGattQueueStats());
+            writer.println("    input " + session.getIdleDetector().formatStats());
+            writer.println("    haptics " + session.getHapticStats());
+            writer.println("    battery " + session.getControllerVoltageMillivolts() + "mV");
+            TraceRecorder recorder = session.getTraceRecorder();
+            if (recorder != null) {
+                writer.println("    trace " + recorder.getName() + " recorded=" + recorder.getRecordedReports()
+                        + " dropped=" + recorder.getDroppedReports());
+            }
+            if (session.getPipeline().isTimingEnabled()) {
+                writer.println("    " + session.getPipeline().formatTimings().replace("\n", "\n    "));
+            }
+        }
+    }
+
     // --- Notification Handling ---
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -428,16 +881,31 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
     // --- ConnectionStateCallback Implementation ---
     @Override
     public void onConnectionStateChanged(int state, String deviceAddress) {
+        if (state == BluetoothProfile.STATE_CONNECTING) {
+            // Link dropped: release everything the game sees as held right away, from the GATT thread
+            ControllerSession session = sessions.get(deviceAddress);
+            if (session != null) {
+                session.onLinkLost();
+            }
+        }
         serviceHandler.post(() -> {
+            ControllerSession session = sessions.get(deviceAddress);
+            if (session == null) {
+                return; // Late callback for a session that was already torn down
+            }
             if (state == BluetoothProfile.STATE_CONNECTED) {
-                updateState(ServiceState.CONNECTED);
-                updateNotification("Connected to " + deviceAddress);
+                session.setState(ControllerSession.State.CONNECTED);
+                refreshState();
+                updateNotification(describeSessions());
+            } else if (state == BluetoothProfile.STATE_CONNECTING) {
+                // Link dropped, AndroidBleManager is reconnecting; the session keeps its device registered
+                Log.w(TAG, "BLE connection to " + deviceAddress + " lost, reconnecting.");
+                session.setState(ControllerSession.State.CONNECTING);
+                refreshState();
+                updateNotification("Reconnecting to " + deviceAddress + "...");
             } else if (state == BluetoothProfile.STATE_DISCONNECTED) {
-                // If we were connecting or connected, and now disconnected
-                if (currentState.get() == ServiceState.CONNECTING || currentState.get() == ServiceState.CONNECTED) {
-                    Log.w(TAG, "BLE connection lost unexpectedly.");
-                    disconnectDeviceInternal(); // Clean up fully
-                }
+                Log.w(TAG, "BLE connection to " + deviceAddress + " lost unexpectedly.");
+                disconnectDeviceInternal(deviceAddress); // Clean up fully
             }
         });
     }
@@ -446,9 +914,8 @@ public class EmulationService extends Service implements AndroidBleManager.Conne
     public void onConnectionFailed(String deviceAddress, int errorCode) {
         serviceHandler.post(() -> {
             Log.e(TAG, "Connection failed to " + deviceAddress + " with error: " + errorCode);
-            updateState(ServiceState.FAILED);
-            updateNotification("Connection failed to " + deviceAddress);
-            disconnectDeviceInternal(); // Clean up any partial connection
+            disconnectDeviceInternal(deviceAddress); // Clean up any partial connection
+            reportFailure(deviceAddress, "Connection failed to " + deviceAddress);
         });
     }
 
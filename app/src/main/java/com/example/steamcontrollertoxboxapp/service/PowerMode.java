@@ -0,0 +1,56 @@
+package com.example.steamcontrollertoxboxapp.service;
+
+/**
+ * How much power emulation may spend, from lowest latency to longest battery
+ * life. Each mode bounds the settings the user chose, it never raises them: a
+ * user who asked for a 30 ms report interval keeps it in PERFORMANCE.
+ *
+ * The wait strategy is the input idle timeout: pipeline workers always park
+ * between reports, so what a mode changes is how long an unchanged controller
+ * keeps the pipeline, the output and the link awake before they park as well.
+ * With default settings a mode therefore changes the report interval (and with
+ * it the connection priority) and the idle timeout; the output rate bound only
+ * applies once a fixed output rate is configured.
+ */
+public enum PowerMode {
+    /** The user's settings. */
+    PERFORMANCE(0, 0, 0),
+    /** Reports at least 30 ms apart (BALANCED connection priority), output at most 250 Hz, idle after 5 s. */
+    BALANCED(30, 250, 5_000),
+    /** Reports at least 100 ms apart (LOW_POWER connection priority), output at most 125 Hz, idle after 2 s. */
+    SAVER(100, 125, 2_000);
+
+    /** Lower bound for the controller report interval, 0 for none. */
+    public final int minReportIntervalMillis;
+    /** Upper bound for the fixed output rate, 0 for none. */
+    public final int maxOutputRateHz;
+    /** Upper bound for the input idle timeout, 0 for none. */
+    public final long maxIdleTimeoutMillis;
+
+    PowerMode(int minReportIntervalMillis, int maxOutputRateHz, long maxIdleTimeoutMillis) {
+        this.minReportIntervalMillis = minReportIntervalMillis;
+        this.maxOutputRateHz = maxOutputRateHz;
+        this.maxIdleTimeoutMillis = maxIdleTimeoutMillis;
+    }
+
+    /** The report interval to use in this mode for a requested one. */
+    public int reportIntervalMillis(int requestedMillis) {
+        return Math.max(requestedMillis, minReportIntervalMillis);
+    }
+
+    /** The output rate to use in this mode for a requested one; 0 (no fixed rate) stays 0. */
+    public int outputRateHz(int requestedHz) {
+        if (requestedHz <= 0 || maxOutputRateHz == 0) {
+            return requestedHz;
+        }
+        return Math.min(requestedHz, maxOutputRateHz);
+    }
+
+    /** The input idle timeout to use in this mode for a requested one; 0 (idling disabled) stays 0. */
+    public long idleTimeoutMillis(long requestedMillis) {
+        if (requestedMillis <= 0 || maxIdleTimeoutMillis == 0) {
+            return requestedMillis;
+        }
+        return Math.min(requestedMillis, maxIdleTimeoutMillis);
+    }
+}
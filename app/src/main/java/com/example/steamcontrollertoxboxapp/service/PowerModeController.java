@@ -0,0 +1,272 @@
+package com.example.steamcontrollertoxboxapp.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+/**
+ * Picks the {@link PowerMode} from the phone's battery, battery saver and
+ * thermal state and the controllers' battery voltage.
+ *
+ * Phone state arrives through broadcasts and the thermal status listener, the
+ * controller voltage is polled every {@link #EVALUATE_INTERVAL_MILLIS}. Going
+ * to a thriftier mode happens right away; going back waits until
+ * {@link #UPGRADE_HOLD_MILLIS} after the last change, so a value hovering at a
+ * threshold does not flip the mode back and forth. Every change is recorded as
+ * an {@link Event} in a short history and passed to the listener. All methods
+ * except the getters run on the handler's thread.
+ */
+public class PowerModeController {
+    private static final String TAG = "PowerModeController";
+
+    static final long EVALUATE_INTERVAL_MILLIS = 15_000;
+    static final long UPGRADE_HOLD_MILLIS = 60_000;
+    static final int HISTORY_SIZE = 32;
+
+    // Phone battery while not plugged in
+    static final int PHONE_LOW_PERCENT = 25;
+    static final int PHONE_CRITICAL_PERCENT = 10;
+    // The controller runs on two AA cells: about 3 V fresh, empty around 2 V
+    static final int CONTROLLER_LOW_MILLIVOLTS = 2400;
+    static final int CONTROLLER_CRITICAL_MILLIVOLTS = 2200;
+
+    public interface Listener {
+        void onPowerModeChanged(Event event);
+    }
+
+    /** One mode change and what caused it. */
+    public static final class Event {
+        /** System.currentTimeMillis() of the change. */
+        public final long wallTimeMillis;
+        /** SystemClock.elapsedRealtime() of the change, for intervals between events. */
+        public final long elapsedRealtimeMillis;
+        public final PowerMode from;
+        public final PowerMode to;
+        public final String reason;
+
+        Event(long wallTimeMillis, long elapsedRealtimeMillis, PowerMode from, PowerMode to, String reason) {
+            this.wallTimeMillis = wallTimeMillis;
+            this.elapsedRealtimeMillis = elapsedRealtimeMillis;
+            this.from = from;
+            this.to = to;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%tF %<tT %s -> %s (%s)", wallTimeMillis, from, to, reason);
+        }
+    }
+
+    private final Context context;
+    private final Handler handler;
+    private final PowerManager powerManager;
+    private final IntSupplier controllerVoltage;
+    private final Listener listener;
+    private final Runnable evaluateTask = () -> evaluate(false);
+    private final ArrayDeque<Event> history = new ArrayDeque<>(HISTORY_SIZE);
+
+    private volatile PowerMode mode = PowerMode.PERFORMANCE;
+    private volatile String reason = "startup";
+    private volatile PowerMode override = null;
+    private long lastChangeMillis = 0;
+    private boolean running = false;
+
+    // Inputs; the battery percentage is -1 and the voltage 0 while unknown
+    private volatile int phoneBatteryPercent = -1;
+    private volatile boolean pluggedIn = false;
+    private volatile boolean powerSaveMode = false;
+    private volatile int thermalStatus = PowerManager.THERMAL_STATUS_NONE;
+    private volatile int controllerMillivolts = 0;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                updateBattery(intent);
+            } else {
+                powerSaveMode = powerManager.isPowerSaveMode();
+            }
+            evaluate(false);
+        }
+    };
+
+    private final PowerManager.OnThermalStatusChangedListener thermalListener = status -> {
+        thermalStatus = status;
+        evaluate(false);
+    };
+
+    /**
+     * @param controllerVoltage lowest battery voltage among the connected controllers in mV, 0 if unknown.
+     * @param listener called on the handler's thread after each mode change.
+     */
+    public PowerModeController(Context context, Handler handler, IntSupplier controllerVoltage, Listener listener) {
+        this.context = context;
+        this.handler = handler;
+        this.powerManager = context.getSystemService(PowerManager.class);
+        this.controllerVoltage = controllerVoltage;
+        this.listener = listener;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        // Both are system broadcasts; the sticky battery intent is delivered right away
+        context.registerReceiver(receiver, filter, null, handler);
+        powerManager.addThermalStatusListener(handler::post, thermalListener);
+        powerSaveMode = powerManager.isPowerSaveMode();
+        thermalStatus = powerManager.getCurrentThermalStatus();
+        handler.post(evaluateTask);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        handler.removeCallbacks(evaluateTask);
+        powerManager.removeThermalStatusListener(thermalListener);
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Receiver was not registered", e);
+        }
+    }
+
+    /** Forces a mode, or null to go back to choosing one automatically. Applied immediately. */
+    public void setOverride(PowerMode override) {
+        this.override = override;
+        evaluate(true);
+    }
+
+    public PowerMode getOverride() {
+        return override;
+    }
+
+    public PowerMode getMode() {
+        return mode;
+    }
+
+    /** Mode changes so far, oldest first, at most {@link #HISTORY_SIZE}. */
+    public List<Event> getHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    private void updateBattery(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        phoneBatteryPercent = level >= 0 && scale > 0 ? level * 100 / scale : -1;
+        pluggedIn = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    /** @param immediate skip the upgrade hold, for explicit user choices. */
+    private void evaluate(boolean immediate) {
+        handler.removeCallbacks(evaluateTask);
+        if (!running) return;
+        controllerMillivolts = controllerVoltage.getAsInt();
+
+        StringBuilder why = new StringBuilder();
+        PowerMode candidate = select(why);
+        long now = SystemClock.elapsedRealtime();
+        if (candidate != mode) {
+            boolean upgrade = candidate.ordinal() < mode.ordinal();
+            if (immediate || !upgrade || now - lastChangeMillis >= UPGRADE_HOLD_MILLIS) {
+                change(candidate, why.toString(), now);
+            }
+        }
+        handler.postDelayed(evaluateTask, EVALUATE_INTERVAL_MILLIS);
+    }
+
+    /** The thriftiest mode any input asks for; appends the reason to why. */
+    private PowerMode select(StringBuilder why) {
+        if (override != null) {
+            why.append("override");
+            return override;
+        }
+        boolean onBattery = !pluggedIn && phoneBatteryPercent >= 0;
+        int millivolts = controllerMillivolts;
+
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            why.append("thermal ").append(thermalName(thermalStatus));
+            return PowerMode.SAVER;
+        }
+        if (onBattery && phoneBatteryPercent <= PHONE_CRITICAL_PERCENT) {
+            why.append("phone battery ").append(phoneBatteryPercent).append('%');
+            return PowerMode.SAVER;
+        }
+        if (millivolts > 0 && millivolts <= CONTROLLER_CRITICAL_MILLIVOLTS) {
+            why.append("controller battery ").append(millivolts).append(" mV");
+            return PowerMode.SAVER;
+        }
+
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE) {
+            why.append("thermal ").append(thermalName(thermalStatus));
+            return PowerMode.BALANCED;
+        }
+        if (powerSaveMode) {
+            why.append("battery saver");
+            return PowerMode.BALANCED;
+        }
+        if (onBattery && phoneBatteryPercent <= PHONE_LOW_PERCENT) {
+            why.append("phone battery ").append(phoneBatteryPercent).append('%');
+            return PowerMode.BALANCED;
+        }
+        if (millivolts > 0 && millivolts <= CONTROLLER_LOW_MILLIVOLTS) {
+            why.append("controller battery ").append(millivolts).append(" mV");
+            return PowerMode.BALANCED;
+        }
+
+        why.append(pluggedIn ? "plugged in" : "battery and temperature normal");
+        return PowerMode.PERFORMANCE;
+    }
+
+    private void change(PowerMode newMode, String newReason, long nowMillis) {
+        Event event = new Event(System.currentTimeMillis(), nowMillis, mode, newMode, newReason);
+        mode = newMode;
+        reason = newReason;
+        lastChangeMillis = nowMillis;
+        synchronized (history) {
+            if (history.size() == HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(event);
+        }
+        Log.i(TAG, "Power mode " + event);
+        listener.onPowerModeChanged(event);
+    }
+
+    private static String thermalName(int status) {
+        switch (status) {
+            case PowerManager.THERMAL_STATUS_NONE: return "none";
+            case PowerManager.THERMAL_STATUS_LIGHT: return "light";
+            case PowerManager.THERMAL_STATUS_MODERATE: return "moderate";
+            case PowerManager.THERMAL_STATUS_SEVERE: return "severe";
+            case PowerManager.THERMAL_STATUS_CRITICAL: return "critical";
+            case PowerManager.THERMAL_STATUS_EMERGENCY: return "emergency";
+            case PowerManager.THERMAL_STATUS_SHUTDOWN: return "shutdown";
+            default: return String.valueOf(status);
+        }
+    }
+
+    public String formatStats() {
+        return "mode=" + mode + (override != null ? " (override)" : "") + " reason=" + reason
+                + " phone=" + (phoneBatteryPercent >= 0 ? phoneBatteryPercent + "%" : "?")
+                + (pluggedIn ? " plugged" : "") + (powerSaveMode ? " saver" : "")
+                + " thermal=" + thermalName(thermalStatus)
+                + " controller=" + (controllerMillivolts > 0 ? controllerMillivolts + "mV" : "?");
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.steamcontrollertoxboxapp.ui;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.pipeline.StateSnapshotStage;
+
+/**
+ * Draws one controller snapshot: both sticks (decoded position as a hollow
+ * dot, output position filled, so deadzones and smoothing are visible),
+ * triggers, buttons, gyro and the latency the pipeline added. Fed by
+ * {@link MainActivity} once per display frame; drawing does not allocate.
+ */
+public class ControllerVisualizerView extends View {
+    private static final String[] BUTTON_LABELS = {"A", "B", "X", "Y", "LB", "RB", "BK", "ST", "LS", "RS"};
+    private static final float GYRO_FULL_SCALE = 32768f;
+
+    private static final StateSnapshotStage.Snapshot EMPTY = new StateSnapshotStage.Snapshot();
+
+    private final StateSnapshotStage.Snapshot snapshot = new StateSnapshotStage.Snapshot();
+    private final boolean[] buttons = new boolean[BUTTON_LABELS.length];
+    private final StringBuilder text = new StringBuilder();
+
+    private final Paint outline = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint rawDot = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint label = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint pressed = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    public ControllerVisualizerView(Context context) {
+        this(context, null);
+    }
+
+    public ControllerVisualizerView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        outline.setStyle(Paint.Style.STROKE);
+        outline.setStrokeWidth(2 * density);
+        outline.setColor(Color.GRAY);
+        fill.setColor(Color.rgb(0x10, 0x7C, 0x10)); // Xbox green
+        rawDot.setStyle(Paint.Style.STROKE);
+        rawDot.setStrokeWidth(2 * density);
+        rawDot.setColor(Color.DKGRAY);
+        label.setColor(Color.BLACK);
+        label.setTextSize(12 * density);
+        pressed.setColor(fill.getColor());
+    }
+
+    /** Shows the given state; call on the UI thread. */
+    public void show(StateSnapshotStage.Snapshot latest) {
+        snapshot.copyFrom(latest);
+        invalidate();
+    }
+
+    /** Shows nothing connected. */
+    public void clear() {
+        snapshot.copyFrom(EMPTY);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float width = getWidth();
+        float height = getHeight();
+        float lineHeight = label.getTextSize() * 1.5f;
+
+        // Sticks, top row
+        float stickRadius = Math.min(width / 5, height / 4);
+        float stickY = stickRadius + lineHeight;
+        drawStick(canvas, width / 4, stickY, stickRadius,
+                snapshot.decoded.leftStickX, snapshot.decoded.leftStickY,
+                snapshot.output.leftStickX, snapshot.output.leftStickY);
+        drawStick(canvas, 3 * width / 4, stickY, stickRadius,
+                snapshot.decoded.rightStickX, snapshot.decoded.rightStickY,
+                snapshot.output.rightStickX, snapshot.output.rightStickY);
+
+        // Triggers, above the sticks
+        float barHeight = lineHeight / 2;
+        drawBar(canvas, 0, 0, width / 2 - lineHeight, barHeight, snapshot.output.leftTrigger);
+        drawBar(canvas, width / 2 + lineHeight, 0, width / 2 - lineHeight, barHeight, snapshot.output.rightTrigger);
+
+        // Buttons
+        float y = stickY + stickRadius + lineHeight;
+        copyButtons(snapshot.output);
+        float cell = width / buttons.length;
+        for (int i = 0; i < buttons.length; i++) {
+            float cx = cell * i + cell / 2;
+            canvas.drawCircle(cx, y, cell / 3, buttons[i] ? pressed : outline);
+            canvas.drawText(BUTTON_LABELS[i], cx - label.measureText(BUTTON_LABELS[i]) / 2, y + cell / 3 + lineHeight, label);
+        }
+
+        // Gyro, one centered bar per axis
+        y += cell / 3 + 2 * lineHeight;
+        if (snapshot.hasGyro) {
+            drawCenteredBar(canvas, y, width, barHeight, snapshot.gyroX / GYRO_FULL_SCALE);
+            drawCenteredBar(canvas, y + lineHeight, width, barHeight, snapshot.gyroY / GYRO_FULL_SCALE);
+            drawCenteredBar(canvas, y + 2 * lineHeight, width, barHeight, snapshot.gyroZ / GYRO_FULL_SCALE);
+        } else {
+            drawText(canvas, y + barHeight, "Gyro off");
+        }
+
+        // Latency
+        y += 3 * lineHeight + barHeight;
+        text.setLength(0);
+        if (snapshot.sequence == 0) {
+            text.append("No input");
+        } else {
+            long micros = snapshot.latencyNanos / 1000;
+            text.append("Added latency: ").append(micros / 1000).append('.');
+            long fraction = (micros % 1000) / 10;
+            if (fraction < 10) text.append('0');
+            text.append(fraction).append(" ms");
+        }
+        canvas.drawText(text, 0, text.length(), 0, y, label);
+    }
+
+    private void drawStick(Canvas canvas, float cx, float cy, float radius,
+                           float rawX, float rawY, float outX, float outY) {
+        canvas.drawCircle(cx, cy, radius, outline);
+        float dot = radius / 8;
+        // Stick Y is positive up, screen Y grows downwards
+        canvas.drawCircle(cx + rawX * radius, cy - rawY * radius, dot, rawDot);
+        canvas.drawCircle(cx + outX * radius, cy - outY * radius, dot, fill);
+    }
+
+    private void drawBar(Canvas canvas, float left, float top, float width, float height, float value) {
+        canvas.drawRect(left, top, left + width, top + height, outline);
+        canvas.drawRect(left, top, left + width * clamp(value, 0, 1), top + height, fill);
+    }
+
+    private void drawCenteredBar(Canvas canvas, float top, float width, float height, float value) {
+        float center = width / 2;
+        canvas.drawRect(0, top, width, top + height, outline);
+        float end = center + center * clamp(value, -1, 1);
+        canvas.drawRect(Math.min(center, end), top, Math.max(center, end), top + height, fill);
+    }
+
+    private void drawText(Canvas canvas, float y, String value) {
+        canvas.drawText(value, 0, y, label);
+    }
+
+    private void copyButtons(SteamControllerParser.XboxOutput state) {
+        buttons[0] = state.buttonA;
+        buttons[1] = state.buttonB;
+        buttons[2] = state.buttonX;
+        buttons[3] = state.buttonY;
+        buttons[4] = state.buttonLB;
+        buttons[5] = state.buttonRB;
+        buttons[6] = state.buttonBack;
+        buttons[7] = state.buttonStart;
+        buttons[8] = state.buttonLStick;
+        buttons[9] = state.buttonRStick;
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -5,23 +5,50 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.steamcontrollertoxboxapp.R;
 import com.example.steamcontrollertoxboxapp.ble.BleDevice;
 import java.util.List;
+import java.util.Objects;
 
-public class DeviceScanAdapter extends RecyclerView.Adapter<DeviceScanAdapter.DeviceViewHolder> {
+/**
+ * Scanned devices. Submitted lists are diffed on a background thread
+ * (ListAdapter/AsyncListDiffer), so only the rows that changed are touched; an
+ * RSSI-only change rebinds just the signal text.
+ */
+public class DeviceScanAdapter extends ListAdapter<BleDevice, DeviceScanAdapter.DeviceViewHolder> {
+
+    private static final Object PAYLOAD_RSSI = new Object();
+
+    private static final DiffUtil.ItemCallback<BleDevice> DIFF_CALLBACK = new DiffUtil.ItemCallback<BleDevice>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BleDevice oldItem, @NonNull BleDevice newItem) {
+            return oldItem.getAddress().equals(newItem.getAddress());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull BleDevice oldItem, @NonNull BleDevice newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName()) && oldItem.getRssi() == newItem.getRssi();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull BleDevice oldItem, @NonNull BleDevice newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName()) ? PAYLOAD_RSSI : null;
+        }
+    };
 
-    private final List<BleDevice> devices;
     private final OnDeviceClickListener listener;
 
     public interface OnDeviceClickListener {
         void onDeviceClick(String address);
     }
 
-    public DeviceScanAdapter(List<BleDevice> devices, OnDeviceClickListener listener) {
-        this.devices = devices;
+    public DeviceScanAdapter(OnDeviceClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -29,34 +56,65 @@ public class DeviceScanAdapter extends RecyclerView.Adapter<DeviceScanAdapter.De
     public DeviceViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.list_item_device, parent, false);
-        return new DeviceViewHolder(view);
+        DeviceViewHolder holder = new DeviceViewHolder(view);
+        // Set once per row instead of on every bind
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onDeviceClick(getItem(position).getAddress());
+            }
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull DeviceViewHolder holder, int position) {
-        BleDevice device = devices.get(position);
-        holder.bind(device, listener);
+        holder.bind(getItem(position));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DeviceViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindRssi(getItem(position));
+        }
     }
 
     @Override
-    public int getItemCount() {
-        return devices.size();
+    public long getItemId(int position) {
+        return addressToId(getItem(position).getAddress());
+    }
+
+    /** A MAC address is 48 bits, so it is its own stable ID. */
+    static long addressToId(String address) {
+        try {
+            return Long.parseLong(address.replace(":", ""), 16);
+        } catch (NumberFormatException e) {
+            return address.hashCode();
+        }
     }
 
     static class DeviceViewHolder extends RecyclerView.ViewHolder {
         TextView tvDeviceAddress;
+        TextView tvDeviceRssi;
 
         DeviceViewHolder(View itemView) {
             super(itemView);
             tvDeviceAddress = itemView.findViewById(R.id.tv_device_address);
+            tvDeviceRssi = itemView.findViewById(R.id.tv_device_rssi);
         }
 
-        void bind(final BleDevice device, final OnDeviceClickListener listener) {
-            String displayText = device.getName() != null ? 
-                device.getName() + "\n" + device.getAddress() : 
+        void bind(final BleDevice device) {
+            String displayText = device.getName() != null ?
+                device.getName() + "\n" + device.getAddress() :
                 device.getAddress();
             tvDeviceAddress.setText(displayText);
-            itemView.setOnClickListener(v -> listener.onDeviceClick(device.getAddress()));
+            bindRssi(device);
+        }
+
+        void bindRssi(BleDevice device) {
+            tvDeviceRssi.setText(device.getRssi() != BleDevice.RSSI_UNKNOWN ? device.getRssi() + " dBm" : "");
         }
     }
 }
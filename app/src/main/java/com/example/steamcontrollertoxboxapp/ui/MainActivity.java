@@ -10,6 +10,7 @@ import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.view.Choreographer;
 import android.view.View;
 import android.widget.Button;
 import android.util.Log;
@@ -24,9 +25,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.steamcontrollertoxboxapp.R;
 import com.example.steamcontrollertoxboxapp.ble.AndroidBleManager;
+import com.example.steamcontrollertoxboxapp.pipeline.StateSnapshotStage;
 import com.example.steamcontrollertoxboxapp.service.EmulationService;
 
-import java.util.ArrayList;
 import java.util.List;
 import com.example.steamcontrollertoxboxapp.ble.BleDevice;
 
@@ -36,8 +37,29 @@ public class MainActivity extends AppCompatActivity {
     private boolean bound = false;
     private RecyclerView deviceList;
     private Button scanButton;
-    private List<BleDevice> discoveredDevices = new ArrayList<>();
     private DeviceScanAdapter adapter;
+    private Button visualizerButton;
+    private ControllerVisualizerView visualizer;
+    // Live input: one snapshot read per display frame while the visualizer is shown
+    private StateSnapshotStage visualizedStage;
+    private final StateSnapshotStage.Snapshot visualizerSnapshot = new StateSnapshotStage.Snapshot();
+    private long lastVisualizedSequence = -1;
+    private boolean visualizerRunning = false;
+    private final Choreographer.FrameCallback visualizerFrame = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!visualizerRunning) return;
+            updateVisualizer();
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+    // Latest ranked scan snapshot, handed to the adapter at most once per display frame
+    private List<BleDevice> pendingDevices;
+    private boolean frameScheduled = false;
+    private final Choreographer.FrameCallback submitDevices = frameTimeNanos -> {
+        frameScheduled = false;
+        adapter.submitList(pendingDevices);
+    };
 
     private final ServiceConnection connection = new ServiceConnection() {
         @Override
@@ -50,6 +72,11 @@ public class MainActivity extends AppCompatActivity {
                 public void onStateChanged(EmulationService.ServiceState newState) {
                     updateScanButtonState();
                 }
+
+                @Override
+                public void onFailure(String address, String message) {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show());
+                }
             });
             updateScanButtonState();
         }
@@ -99,12 +126,16 @@ public class MainActivity extends AppCompatActivity {
         deviceList = findViewById(R.id.device_list);
         scanButton = findViewById(R.id.scan_button);
 
-        adapter = new DeviceScanAdapter(discoveredDevices, this::connectToDevice);
+        adapter = new DeviceScanAdapter(this::connectToDevice);
         deviceList.setLayoutManager(new LinearLayoutManager(this));
         deviceList.setAdapter(adapter);
 
         scanButton.setOnClickListener(v -> checkPermissionsAndScan());
 
+        visualizerButton = findViewById(R.id.visualizer_button);
+        visualizer = findViewById(R.id.visualizer);
+        visualizerButton.setOnClickListener(v -> setVisualizerShown(visualizer.getVisibility() != View.VISIBLE));
+
         // Démarrer et lier le service
         Intent intent = new Intent(this, EmulationService.class);
         startForegroundService(intent);
@@ -154,16 +185,18 @@ public class MainActivity extends AppCompatActivity {
 
     private void startScan() {
         if (bound && emulationService != null) {
-            discoveredDevices.clear();
-            adapter.notifyDataSetChanged();
-            
+            // Controllers seen recently are listed (and connectable) before the scan finds them again
+            showDevices(emulationService.getCachedDevices());
+
             emulationService.startScan(5000, new AndroidBleManager.ScanListener() {
                 @Override
                 public void onDeviceDiscovered(String deviceAddress, String name) {
-                    runOnUiThread(() -> {
-                        discoveredDevices.add(new BleDevice(deviceAddress, name));
-                        adapter.notifyItemInserted(discoveredDevices.size() - 1);
-                    });
+                    // Covered by the ranked snapshots
+                }
+
+                @Override
+                public void onDevicesUpdated(List<BleDevice> rankedDevices) {
+                    runOnUiThread(() -> showDevices(rankedDevices));
                 }
 
                 @Override
@@ -192,6 +225,81 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /** Main thread only. The list is diffed in the background; the result is applied with the next frame. */
+    private void showDevices(List<BleDevice> devices) {
+        pendingDevices = devices;
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(submitDevices);
+        }
+    }
+
+    private void setVisualizerShown(boolean shown) {
+        visualizer.setVisibility(shown ? View.VISIBLE : View.GONE);
+        visualizerButton.setText(shown ? R.string.hide_visualizer : R.string.show_visualizer);
+        if (shown) {
+            startVisualizer();
+        } else {
+            stopVisualizer();
+        }
+    }
+
+    private void startVisualizer() {
+        if (visualizerRunning || visualizer.getVisibility() != View.VISIBLE) return;
+        visualizerRunning = true;
+        Choreographer.getInstance().postFrameCallback(visualizerFrame);
+    }
+
+    private void stopVisualizer() {
+        visualizerRunning = false;
+        Choreographer.getInstance().removeFrameCallback(visualizerFrame);
+        watchStage(null);
+    }
+
+    /** Runs once per frame: a local lookup and a seqlock read, no binder call. */
+    private void updateVisualizer() {
+        StateSnapshotStage stage = bound && emulationService != null
+                ? emulationService.getStateSnapshot(emulationService.getConnectedDeviceAddress()) : null;
+        watchStage(stage);
+        if (stage == null) {
+            if (lastVisualizedSequence != 0) {
+                lastVisualizedSequence = 0;
+                visualizer.clear();
+            }
+            return;
+        }
+        long sequence = stage.read(visualizerSnapshot);
+        if (sequence != lastVisualizedSequence) {
+            lastVisualizedSequence = sequence;
+            visualizer.show(visualizerSnapshot);
+        }
+    }
+
+    /** Publishing costs the pipeline a copy per report, so it is only on for the controller on screen. */
+    private void watchStage(StateSnapshotStage stage) {
+        if (stage == visualizedStage) return;
+        if (visualizedStage != null) {
+            visualizedStage.setEnabled(false);
+        }
+        visualizedStage = stage;
+        lastVisualizedSequence = -1;
+        if (stage != null) {
+            stage.setEnabled(true);
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        startVisualizer();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        stopVisualizer();
+    }
+
     private void connectToDevice(String address) {
         if (bound && emulationService != null) {
             emulationService.connectToDevice(address);
@@ -201,6 +309,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        Choreographer.getInstance().removeFrameCallback(submitDevices);
         if (bound) {
             unbindService(connection);
             bound = false;
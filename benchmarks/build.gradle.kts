@@ -0,0 +1,30 @@
+// JMH benchmarks for the input hot path, runnable on any desktop JVM:
+//   ./gradlew :benchmarks:jmh
+// Results (throughput plus gc.alloc.rate.norm, i.e. bytes allocated per operation)
+// are written to benchmarks/build/results/jmh/results.json.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(project(":core"))
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.annprocess)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    benchmarkMode.add("thrpt")
+    timeUnit.set("us")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
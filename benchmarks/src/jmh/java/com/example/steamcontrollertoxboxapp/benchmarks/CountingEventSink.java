@@ -0,0 +1,25 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+
+/** Stand-in for the JNI uinput writer: accepts every event and keeps a checksum so nothing is optimized away. */
+final class CountingEventSink implements UInputController.EventSink {
+    long events;
+    long checksum;
+
+    @Override
+    public int open() {
+        return 3;
+    }
+
+    @Override
+    public void close(int fd) {
+    }
+
+    @Override
+    public boolean sendEvent(int fd, int type, int code, int value) {
+        events++;
+        checksum = checksum * 31 + (type ^ code ^ value);
+        return true;
+    }
+}
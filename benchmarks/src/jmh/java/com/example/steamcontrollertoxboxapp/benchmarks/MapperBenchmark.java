@@ -0,0 +1,48 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Mapping one decoded report and handing it to the virtual controller. */
+@State(Scope.Thread)
+public class MapperBenchmark {
+    private SteamControllerParser.XboxOutput[] outputs;
+    private int index;
+    private final CountingEventSink sink = new CountingEventSink();
+    private UInputController controller;
+    private ControllerMapper mapper;
+
+    @Setup
+    public void setUp() {
+        outputs = SampleReports.createDecoded();
+        controller = new UInputController(sink);
+        controller.initialize();
+        mapper = new ControllerMapper(controller);
+    }
+
+    @TearDown
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Benchmark
+    public long map() {
+        index = SampleReports.next(index);
+        mapper.map(outputs[index]);
+        return sink.events;
+    }
+
+    @Benchmark
+    public long processSteamEvent() {
+        index = SampleReports.next(index);
+        mapper.processSteamEvent(outputs[index]);
+        return sink.events;
+    }
+}
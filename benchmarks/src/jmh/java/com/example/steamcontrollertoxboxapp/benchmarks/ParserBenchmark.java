@@ -0,0 +1,37 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding one raw BLE report. parseInto is the allocation-free form the pipeline
+ * uses and should show 0 B/op; parseAllocating is the legacy form for comparison.
+ */
+@State(Scope.Thread)
+public class ParserBenchmark {
+    private byte[][] reports;
+    private int index;
+    private final SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+
+    @Setup
+    public void setUp() {
+        reports = SampleReports.create();
+    }
+
+    @Benchmark
+    public SteamControllerParser.XboxOutput parseInto() {
+        index = SampleReports.next(index);
+        SteamControllerParser.parseInput(reports[index], output);
+        return output;
+    }
+
+    @Benchmark
+    public SteamControllerParser.XboxOutput parseAllocating() {
+        index = SampleReports.next(index);
+        return SteamControllerParser.parseInput(reports[index]);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+import com.example.steamcontrollertoxboxapp.pipeline.InputPipeline;
+import com.example.steamcontrollertoxboxapp.pipeline.ReportDispatcher;
+import com.example.steamcontrollertoxboxapp.pipeline.SessionWorkerPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * What a report notification costs the BLE callback thread as the service wires
+ * it: the whole pipeline inline in DIRECT mode, or queue offer plus worker wakeup
+ * in QUEUED mode (reports the worker cannot keep up with are dropped and counted).
+ */
+@State(Scope.Benchmark)
+public class ReportDispatcherBenchmark {
+    @Param({"DIRECT", "QUEUED"})
+    public ReportDispatcher.Mode mode;
+
+    private byte[][] reports;
+    private int index;
+    private SessionWorkerPool workerPool;
+    private ReportDispatcher dispatcher;
+    private UInputController controller;
+
+    @Setup
+    public void setUp() {
+        reports = SampleReports.create();
+        controller = new UInputController(new CountingEventSink());
+        controller.initialize();
+        InputPipeline pipeline = InputPipeline.createReplay(
+                new OneEuroFilter(FilterProfile.DEFAULT), new ControllerMapper(controller), controller);
+        workerPool = new SessionWorkerPool(1);
+        // No budget fallback, DIRECT must stay DIRECT for the whole run
+        dispatcher = new ReportDispatcher(pipeline, mode, workerPool, null, Long.MAX_VALUE, Integer.MAX_VALUE);
+        dispatcher.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.stop();
+        workerPool.shutdown();
+        controller.destroy();
+    }
+
+    @Benchmark
+    public void onReport() {
+        index = SampleReports.next(index);
+        dispatcher.onReport(reports[index], System.nanoTime());
+    }
+}
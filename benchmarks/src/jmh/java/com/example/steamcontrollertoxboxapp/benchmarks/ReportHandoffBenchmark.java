@@ -0,0 +1,48 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.pipeline.PipelineFrame;
+import com.example.steamcontrollertoxboxapp.pipeline.ReportQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Raw cost of the report queue between the GATT callback thread and a session
+ * worker: one producer and one consumer thread hammering the same ring.
+ * offer/poll return false when the ring is full/empty, which JMH still counts,
+ * so compare the two rates rather than reading either as successful handoffs.
+ */
+@State(Scope.Group)
+public class ReportHandoffBenchmark {
+    private ReportQueue queue;
+    private byte[] report;
+
+    @State(Scope.Thread)
+    public static class ConsumerState {
+        final PipelineFrame frame = new PipelineFrame();
+    }
+
+    @Setup
+    public void setUp() {
+        queue = new ReportQueue(128);
+        report = SampleReports.create()[0];
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public boolean offer() {
+        return queue.offer(report, System.nanoTime());
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public boolean poll(ConsumerState consumer) {
+        return queue.poll(consumer.frame);
+    }
+}
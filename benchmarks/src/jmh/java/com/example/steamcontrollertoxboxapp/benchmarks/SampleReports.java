@@ -0,0 +1,36 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+import java.util.Random;
+
+/** Deterministic pseudo-random controller reports, cycled through so the JIT cannot constant-fold them. */
+final class SampleReports {
+    static final int COUNT = 256; // Power of two, see next()
+    static final int REPORT_LENGTH = 20;
+
+    private SampleReports() {}
+
+    static byte[][] create() {
+        Random random = new Random(42);
+        byte[][] reports = new byte[COUNT][REPORT_LENGTH];
+        for (byte[] report : reports) {
+            random.nextBytes(report);
+        }
+        return reports;
+    }
+
+    static SteamControllerParser.XboxOutput[] createDecoded() {
+        byte[][] reports = create();
+        SteamControllerParser.XboxOutput[] outputs = new SteamControllerParser.XboxOutput[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            outputs[i] = new SteamControllerParser.XboxOutput();
+            SteamControllerParser.parseInput(reports[i], outputs[i]);
+        }
+        return outputs;
+    }
+
+    static int next(int index) {
+        return (index + 1) & (COUNT - 1);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.steamcontrollertoxboxapp.benchmarks;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The Java side of one uinput frame (17 events including SYN_REPORT) against a
+ * stand-in sink, i.e. everything but the JNI call and the write() itself.
+ */
+@State(Scope.Thread)
+public class UInputControllerBenchmark {
+    private SteamControllerParser.XboxOutput[] outputs;
+    private int index;
+    private final CountingEventSink sink = new CountingEventSink();
+    private UInputController controller;
+
+    @Setup
+    public void setUp() {
+        outputs = SampleReports.createDecoded();
+        controller = new UInputController(sink);
+        controller.initialize();
+    }
+
+    @TearDown
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Benchmark
+    public long update() {
+        index = SampleReports.next(index);
+        controller.update(outputs[index]);
+        return sink.checksum;
+    }
+}
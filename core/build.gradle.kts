@@ -0,0 +1,14 @@
+// Platform-independent input pipeline: parser, mapper, filters, dispatch, traces
+// and the uinput controller. Shared by the Android app and the headless daemon.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -5,16 +5,29 @@
 #include <fcntl.h>
 #include <unistd.h>
 #include <errno.h>
+#include <time.h>
 #include <linux/input.h>
 #include <linux/uinput.h> // Requires kernel headers available during build
-#include <android/log.h> // For Android logging
 
-// Define Log Tag for Android Logging
 #define LOG_TAG "uinput_wrapper"
+#ifdef __ANDROID__
+#include <android/log.h> // For Android logging
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
 #define LOGD(...) __android_log_print(ANDROID_LOG_DEBUG, LOG_TAG, __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
 #define LOGW(...) __android_log_print(ANDROID_LOG_WARN, LOG_TAG, __VA_ARGS__)
+#else
+// Headless daemon on desktop Linux: same "X/tag: message" lines as the Java side, on stderr
+#define LOG_PRINT(level, ...) do { \
+        fprintf(stderr, level "/" LOG_TAG ": "); \
+        fprintf(stderr, __VA_ARGS__); \
+        fputc('\n', stderr); \
+    } while (0)
+#define LOGI(...) LOG_PRINT("I", __VA_ARGS__)
+#define LOGD(...) do { } while (0)
+#define LOGE(...) LOG_PRINT("E", __VA_ARGS__)
+#define LOGW(...) LOG_PRINT("W", __VA_ARGS__)
+#endif
 
 // --- JNI Function Declarations (matching UInputController.java) ---
 // Package: com.example.steamcontrollertoxboxapp.nativeimpl
@@ -31,13 +44,44 @@ JNIEXPORT jboolean JNICALL Java_com_example_steamcontrollertoxboxapp_nativeimpl_
   (JNIEnv *, jobject, jint, jint, jint, jint);
 
 
+// --- Rate limited error logging for send_event ---
+// send_event runs for every axis and button of every report, so a dead device would
+// otherwise format and log a line per event. The first failure is logged, then at most
+// one line per interval with the number of failures that were only counted.
+#define SEND_ERROR_LOG_INTERVAL_NS 1000000000LL
+
+static long long send_error_last_log_ns = -SEND_ERROR_LOG_INTERVAL_NS;
+static unsigned int send_error_suppressed = 0;
+
+static long long monotonic_ns(void) {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return (long long) ts.tv_sec * 1000000000LL + ts.tv_nsec;
+}
+
+// Returns the number of failures suppressed since the last logged one, or -1 to stay quiet
+static long long send_error_should_log(void) {
+    long long now = monotonic_ns();
+    long long last = __atomic_load_n(&send_error_last_log_ns, __ATOMIC_RELAXED);
+    if (now - last < SEND_ERROR_LOG_INTERVAL_NS
+            || !__atomic_compare_exchange_n(&send_error_last_log_ns, &last, now, 0,
+                                            __ATOMIC_RELAXED, __ATOMIC_RELAXED)) {
+        __atomic_add_fetch(&send_error_suppressed, 1, __ATOMIC_RELAXED);
+        return -1;
+    }
+    return __atomic_exchange_n(&send_error_suppressed, 0, __ATOMIC_RELAXED);
+}
+
 // --- Helper Function to send uinput events ---
 static int send_event(int fd, int type, int code, int value) {
    struct input_event ev;
 
    // Check for valid fd first
    if (fd < 0) {
-       LOGE("send_event: Invalid file descriptor %d", fd);
+       long long suppressed = send_error_should_log();
+       if (suppressed >= 0) {
+           LOGE("send_event: Invalid file descriptor %d (%lld similar errors suppressed)", fd, suppressed);
+       }
        return -1; // Or another specific error code like -EBADF
    }
 
@@ -48,10 +92,14 @@ static int send_event(int fd, int type, int code, int value) {
    // Kernel usually fills in ev.time
 
    if (write(fd, &ev, sizeof(ev)) < 0) {
-      // Use strerror to get a meaningful error message
-      LOGE("send_event: Error writing event (type=%d, code=%d, value=%d): %s (errno %d)",
-           type, code, value, strerror(errno), errno);
-      return -errno; // Return negative errno
+      int error = errno;
+      long long suppressed = send_error_should_log();
+      if (suppressed >= 0) {
+          // Use strerror to get a meaningful error message
+          LOGE("send_event: Error writing event (type=%d, code=%d, value=%d): %s (errno %d, %lld similar errors suppressed)",
+               type, code, value, strerror(error), error, suppressed);
+      }
+      return -error; // Return negative errno
    }
    // LOGD("send_event: Sent type=%d, code=%d, value=%d", type, code, value); // Verbose
    return 0; // Success
@@ -1,10 +1,8 @@
 package com.example.steamcontrollertoxboxapp.core; // << Note package name change
 
-import android.util.Log; // Use Android logging
+import com.example.steamcontrollertoxboxapp.logging.Log;
 
 import java.io.IOException; // Added for Android context
-import java.util.EnumMap;
-import java.util.Map;
 
 /**
  * Maps input events from a parsed SteamControllerDefs.UpdateEvent
@@ -12,10 +10,16 @@ import java.util.Map;
  */
 public class ControllerMapper {
     private static final String TAG = "ControllerMapper"; // Added for logging
+    private static final VirtualController.XboxButton[] BUTTONS = VirtualController.XboxButton.values();
 
     private final VirtualController virtualController;
-    private final Map<VirtualController.XboxButton, Boolean> currentButtonStates = new EnumMap<>(VirtualController.XboxButton.class);
-    private final Map<VirtualController.XboxAxis, Short> currentAxisStates = new EnumMap<>(VirtualController.XboxAxis.class);
+    // Indexed by enum ordinal: primitive arrays avoid boxing on every report
+    private final boolean[] currentButtonStates = new boolean[VirtualController.XboxButton.values().length];
+    private final short[] currentAxisStates = new short[VirtualController.XboxAxis.values().length];
+    // Xbox button each decoded button is written as, by ordinal; identity unless remapped
+    private final VirtualController.XboxButton[] buttonTargets = BUTTONS.clone();
+    private final boolean[] sourceButtonStates = new boolean[BUTTONS.length];
+    private volatile boolean remapped = false;
     // Optional: Keep track of previous state to only send changes (might add overhead vs benefit)
     // private final Map<VirtualController.XboxButton, Boolean> previousButtonStates = new EnumMap<>(VirtualController.XboxButton.class);
     // private final Map<VirtualController.XboxAxis, Short> previousAxisStates = new EnumMap<>(VirtualController.XboxAxis.class);
@@ -28,12 +32,12 @@ public class ControllerMapper {
 
     private void resetState() {
         for (VirtualController.XboxButton btn : VirtualController.XboxButton.values()) {
-            currentButtonStates.put(btn, false);
+            currentButtonStates[btn.ordinal()] = false;
             // previousButtonStates.put(btn, false);
         }
         for (VirtualController.XboxAxis axis : VirtualController.XboxAxis.values()) {
             // Triggers default to 0, sticks default to 0
-            currentAxisStates.put(axis, (short)0);
+            currentAxisStates[axis.ordinal()] = (short)0;
              // previousAxisStates.put(axis, (short)0);
         }
         Log.d(TAG, "Mapper state reset.");
@@ -51,6 +55,42 @@ public class ControllerMapper {
             return;
         }
 
+        map(xboxOutput);
+
+        // Update the virtual controller
+        virtualController.update(xboxOutput);
+    }
+
+    /**
+     * Sends presses of source to the virtual controller as target instead. Several
+     * sources may share a target, which is then pressed while any of them is.
+     * Takes effect with the next report.
+     */
+    public void setButtonMapping(VirtualController.XboxButton source, VirtualController.XboxButton target) {
+        buttonTargets[source.ordinal()] = target;
+        boolean identity = true;
+        for (VirtualController.XboxButton button : BUTTONS) {
+            identity &= buttonTargets[button.ordinal()] == button;
+        }
+        remapped = !identity;
+    }
+
+    /** Back to every button mapping to itself. */
+    public void resetButtonMapping() {
+        System.arraycopy(BUTTONS, 0, buttonTargets, 0, BUTTONS.length);
+        remapped = false;
+    }
+
+    /**
+     * Applies the button mapping to xboxOutput in place and records the mapped
+     * Xbox state, without writing it to the virtual controller. Used by the input
+     * pipeline, where emitting the mapped output is its own stage.
+     */
+    public void map(SteamControllerParser.XboxOutput xboxOutput) {
+        if (remapped) {
+            remapButtons(xboxOutput);
+        }
+
         // Update button states
         updateButtonState(VirtualController.XboxButton.A, xboxOutput.buttonA);
         updateButtonState(VirtualController.XboxButton.B, xboxOutput.buttonB);
@@ -70,20 +110,56 @@ public class ControllerMapper {
         updateAxisState(VirtualController.XboxAxis.RIGHT_Y, (short)(-xboxOutput.rightStickY * 32767)); // Invert Y
         updateAxisState(VirtualController.XboxAxis.LT, (short)(xboxOutput.leftTrigger * 255));
         updateAxisState(VirtualController.XboxAxis.RT, (short)(xboxOutput.rightTrigger * 255));
+    }
 
-        // Update the virtual controller
-        virtualController.update(xboxOutput);
+    private void remapButtons(SteamControllerParser.XboxOutput out) {
+        sourceButtonStates[VirtualController.XboxButton.A.ordinal()] = out.buttonA;
+        sourceButtonStates[VirtualController.XboxButton.B.ordinal()] = out.buttonB;
+        sourceButtonStates[VirtualController.XboxButton.X.ordinal()] = out.buttonX;
+        sourceButtonStates[VirtualController.XboxButton.Y.ordinal()] = out.buttonY;
+        sourceButtonStates[VirtualController.XboxButton.LB.ordinal()] = out.buttonLB;
+        sourceButtonStates[VirtualController.XboxButton.RB.ordinal()] = out.buttonRB;
+        sourceButtonStates[VirtualController.XboxButton.BACK.ordinal()] = out.buttonBack;
+        sourceButtonStates[VirtualController.XboxButton.START.ordinal()] = out.buttonStart;
+        sourceButtonStates[VirtualController.XboxButton.LSTICK.ordinal()] = out.buttonLStick;
+        sourceButtonStates[VirtualController.XboxButton.RSTICK.ordinal()] = out.buttonRStick;
+        out.buttonA = out.buttonB = out.buttonX = out.buttonY = false;
+        out.buttonLB = out.buttonRB = out.buttonBack = out.buttonStart = false;
+        out.buttonLStick = out.buttonRStick = false;
+        for (int i = 0; i < BUTTONS.length; i++) {
+            if (!sourceButtonStates[i]) continue;
+            switch (buttonTargets[i]) {
+                case A: out.buttonA = true; break;
+                case B: out.buttonB = true; break;
+                case X: out.buttonX = true; break;
+                case Y: out.buttonY = true; break;
+                case LB: out.buttonLB = true; break;
+                case RB: out.buttonRB = true; break;
+                case BACK: out.buttonBack = true; break;
+                case START: out.buttonStart = true; break;
+                case LSTICK: out.buttonLStick = true; break;
+                case RSTICK: out.buttonRStick = true; break;
+            }
+        }
+    }
+
+    public boolean getButtonState(VirtualController.XboxButton button) {
+        return currentButtonStates[button.ordinal()];
+    }
+
+    public short getAxisState(VirtualController.XboxAxis axis) {
+        return currentAxisStates[axis.ordinal()];
     }
 
     // Helper to update button state (no change tracking here)
     private void updateButtonState(VirtualController.XboxButton button, boolean isPressed) {
-        currentButtonStates.put(button, isPressed);
+        currentButtonStates[button.ordinal()] = isPressed;
     }
 
     // Helper to update axis state (no change tracking here)
     private void updateAxisState(VirtualController.XboxAxis axis, short value) {
          // Optional: Add deadzone logic here if needed before putting value
-         currentAxisStates.put(axis, value);
+         currentAxisStates[axis.ordinal()] = value;
     }
 
     // Optional: Check if current state differs from previous state
@@ -0,0 +1,53 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+/**
+ * Tuning of the adaptive axis smoothing ({@link OneEuroFilter}) for one user profile.
+ *
+ * minCutoff (Hz) sets how hard jitter is smoothed while an axis is at rest,
+ * beta how quickly the cutoff opens up as the axis moves faster (less lag),
+ * and derivativeCutoff (Hz) smooths the speed estimate itself.
+ * Sticks and triggers are tuned separately since triggers have no rest jitter worth hiding.
+ */
+public class FilterProfile {
+    public static final FilterProfile OFF = new FilterProfile("Off", false, 0f, 0f, 0f, 0f, 0f, 0f);
+    public static final FilterProfile DEFAULT = new FilterProfile("Default", true, 1.5f, 8f, 1f, 3f, 4f, 1f);
+    public static final FilterProfile SMOOTH = new FilterProfile("Smooth", true, 0.7f, 4f, 1f, 1.5f, 2f, 1f);
+    public static final FilterProfile RESPONSIVE = new FilterProfile("Responsive", true, 3f, 20f, 1f, 6f, 10f, 1f);
+
+    public final String name;
+    public final boolean enabled;
+    public final float stickMinCutoff;
+    public final float stickBeta;
+    public final float stickDerivativeCutoff;
+    public final float triggerMinCutoff;
+    public final float triggerBeta;
+    public final float triggerDerivativeCutoff;
+
+    public FilterProfile(String name, boolean enabled,
+                         float stickMinCutoff, float stickBeta, float stickDerivativeCutoff,
+                         float triggerMinCutoff, float triggerBeta, float triggerDerivativeCutoff) {
+        this.name = name;
+        this.enabled = enabled;
+        this.stickMinCutoff = stickMinCutoff;
+        this.stickBeta = stickBeta;
+        this.stickDerivativeCutoff = stickDerivativeCutoff;
+        this.triggerMinCutoff = triggerMinCutoff;
+        this.triggerBeta = triggerBeta;
+        this.triggerDerivativeCutoff = triggerDerivativeCutoff;
+    }
+
+    /** One of the built-in profiles by (case-insensitive) name, or null. */
+    public static FilterProfile forName(String name) {
+        for (FilterProfile preset : new FilterProfile[] { OFF, DEFAULT, SMOOTH, RESPONSIVE }) {
+            if (preset.name.equalsIgnoreCase(name)) {
+                return preset;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterProfile{" + name + (enabled ? "" : ", disabled") + '}';
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+/**
+ * Receives haptic pulse requests for the controller's trackpad actuators.
+ * Called from the input pipeline, so implementations must return immediately:
+ * no blocking, no I/O, no allocation.
+ */
+public interface HapticSink {
+    int PAD_RIGHT = 0;
+    int PAD_LEFT = 1;
+
+    /** Pulse priorities, higher wins when pulses are merged. */
+    int PRIORITY_TICK = 1;
+    int PRIORITY_REGION = 2;
+
+    /**
+     * Requests one pulse.
+     * @param amplitude actuator strength, 0-65535
+     * @return false if the request was dropped
+     */
+    boolean requestPulse(int pad, int amplitude, int priority);
+}
@@ -0,0 +1,125 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-memory histogram of nanosecond latencies.
+ *
+ * Buckets are log-linear: each power of two is split into {@link #SUB_BUCKETS}
+ * linear sub-buckets, so any recorded value is known to within 1/SUB_BUCKETS
+ * (12.5%) while covering 1 ns up to about 9 s in under 300 counters. record()
+ * is a couple of atomic increments and never allocates or blocks, so any
+ * number of processing threads can record concurrently.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values above 2^MAX_EXPONENT ns (~9.2 s) land in the last bucket
+    private static final int MAX_EXPONENT = 33;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalCount.incrementAndGet();
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) break;
+        }
+    }
+
+    /** Not atomic with respect to concurrent record() calls; values recorded meanwhile may survive. */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        maxNanos.set(0);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /** Copies the counters and computes the usual percentiles. Allocates; not for the hot path. */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(count,
+                percentile(copy, count, 0.50),
+                percentile(copy, count, 0.99),
+                percentile(copy, count, 0.999),
+                maxNanos.get());
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Highest value that maps to the given bucket. */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = ((long) (SUB_BUCKETS + index % SUB_BUCKETS)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private static long percentile(long[] buckets, long count, double quantile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(buckets.length - 1);
+    }
+
+    public static final class Snapshot {
+        public final long count;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long p999Nanos;
+        public final long maxNanos;
+
+        Snapshot(long count, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+            this.count = count;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            // Percentiles are bucket upper bounds and may exceed the exact max slightly
+            this.maxNanos = maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + " p50=" + p50Nanos / 1000 + "us"
+                    + " p99=" + p99Nanos / 1000 + "us"
+                    + " p99.9=" + p999Nanos / 1000 + "us"
+                    + " max=" + maxNanos / 1000 + "us";
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+/**
+ * Adaptive low-pass filter (the "1 Euro filter", Casiez et al.) for the six analog
+ * axes of an {@link SteamControllerParser.XboxOutput}.
+ *
+ * At rest the cutoff stays at the profile's minimum, which hides sensor jitter;
+ * as an axis moves faster the cutoff rises with its speed, so fast motion is
+ * barely delayed. All state lives in fixed primitive arrays and filtering is
+ * done in place, so the hot path never allocates. Not thread-safe: one instance
+ * per controller, driven by whichever thread processes that controller's reports.
+ */
+public class OneEuroFilter {
+    public static final int AXIS_COUNT = 6;
+    private static final int LEFT_X = 0, LEFT_Y = 1, RIGHT_X = 2, RIGHT_Y = 3, LEFT_TRIGGER = 4, RIGHT_TRIGGER = 5;
+
+    // Used for the first sample and for non-increasing timestamps
+    private static final float FALLBACK_DT_SECONDS = 1f / 250f;
+    private static final float TWO_PI = (float) (2 * Math.PI);
+
+    private final float[] previousValue = new float[AXIS_COUNT];
+    private final float[] previousDerivative = new float[AXIS_COUNT];
+    private long previousNanos;
+    private boolean primed = false;
+
+    private volatile FilterProfile profile;
+
+    public OneEuroFilter(FilterProfile profile) {
+        this.profile = profile;
+    }
+
+    public FilterProfile getProfile() {
+        return profile;
+    }
+
+    /** Changes the tuning; safe to call from another thread while reports are being filtered. */
+    public void setProfile(FilterProfile profile) {
+        this.profile = profile;
+    }
+
+    public void reset() {
+        primed = false;
+    }
+
+    /**
+     * Filters the analog axes of output in place.
+     * @param timestampNanos arrival time of the report, from the same clock for every call.
+     */
+    public void filter(SteamControllerParser.XboxOutput output, long timestampNanos) {
+        FilterProfile p = profile;
+        if (!p.enabled) {
+            primed = false;
+            return;
+        }
+        if (!primed) {
+            previousValue[LEFT_X] = output.leftStickX;
+            previousValue[LEFT_Y] = output.leftStickY;
+            previousValue[RIGHT_X] = output.rightStickX;
+            previousValue[RIGHT_Y] = output.rightStickY;
+            previousValue[LEFT_TRIGGER] = output.leftTrigger;
+            previousValue[RIGHT_TRIGGER] = output.rightTrigger;
+            for (int i = 0; i < AXIS_COUNT; i++) {
+                previousDerivative[i] = 0f;
+            }
+            previousNanos = timestampNanos;
+            primed = true;
+            return;
+        }
+
+        float dt = (timestampNanos - previousNanos) / 1_000_000_000f;
+        if (dt <= 0f) {
+            dt = FALLBACK_DT_SECONDS;
+        }
+        previousNanos = timestampNanos;
+
+        output.leftStickX = filterAxis(LEFT_X, output.leftStickX, dt, p.stickMinCutoff, p.stickBeta, p.stickDerivativeCutoff);
+        output.leftStickY = filterAxis(LEFT_Y, output.leftStickY, dt, p.stickMinCutoff, p.stickBeta, p.stickDerivativeCutoff);
+        output.rightStickX = filterAxis(RIGHT_X, output.rightStickX, dt, p.stickMinCutoff, p.stickBeta, p.stickDerivativeCutoff);
+        output.rightStickY = filterAxis(RIGHT_Y, output.rightStickY, dt, p.stickMinCutoff, p.stickBeta, p.stickDerivativeCutoff);
+        output.leftTrigger = filterAxis(LEFT_TRIGGER, output.leftTrigger, dt, p.triggerMinCutoff, p.triggerBeta, p.triggerDerivativeCutoff);
+        output.rightTrigger = filterAxis(RIGHT_TRIGGER, output.rightTrigger, dt, p.triggerMinCutoff, p.triggerBeta, p.triggerDerivativeCutoff);
+    }
+
+    private float filterAxis(int axis, float value, float dt, float minCutoff, float beta, float derivativeCutoff) {
+        float derivative = (value - previousValue[axis]) / dt;
+        float smoothedDerivative = lowPass(derivative, previousDerivative[axis], alpha(dt, derivativeCutoff));
+        previousDerivative[axis] = smoothedDerivative;
+
+        float cutoff = minCutoff + beta * Math.abs(smoothedDerivative);
+        float smoothed = lowPass(value, previousValue[axis], alpha(dt, cutoff));
+        previousValue[axis] = smoothed;
+        return smoothed;
+    }
+
+    private static float alpha(float dt, float cutoff) {
+        float tau = 1f / (TWO_PI * cutoff);
+        return 1f / (1f + tau / dt);
+    }
+
+    private static float lowPass(float value, float previous, float alpha) {
+        return previous + alpha * (value - previous);
+    }
+}
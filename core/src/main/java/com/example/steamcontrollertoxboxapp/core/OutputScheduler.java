@@ -0,0 +1,327 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * VirtualController decorator that emits the pad state to the wrapped controller
+ * at a fixed rate instead of whenever a BLE report happens to arrive.
+ *
+ * update() only records the report; a dedicated timer thread wakes every period
+ * and writes a frame whose analog axes are interpolated between the last two
+ * reports (when an interpolation delay is configured) or briefly extrapolated
+ * past the latest one, then held. Button changes bypass the timer: every report
+ * that changes the buttons is queued as an edge frame and the thread is woken
+ * immediately; it writes the queued edge frames in order before the regular
+ * frame, so a press and release arriving within one period both reach the
+ * wrapped controller. update() never waits, it may run on the BLE callback
+ * thread: should the queue fill up, the newest queued edge is replaced by the
+ * new one and counted as merged, so the latest buttons always go out. The
+ * wrapped controller is only ever called from the timer thread.
+ *
+ * Once the held frame went out there is nothing left to write, so the timer
+ * thread sleeps without a deadline until the next update() wakes it, instead
+ * of ticking through an idle controller at the full output rate.
+ */
+public class OutputScheduler implements VirtualController {
+    public static final int DEFAULT_RATE_HZ = 500;
+    // Extrapolating further than about one BLE connection interval overshoots visibly
+    public static final long DEFAULT_MAX_EXTRAPOLATION_NANOS = 8_000_000L;
+    static final int EDGE_QUEUE_CAPACITY = 32;
+
+    private final VirtualController delegate;
+    private volatile long periodNanos;
+    private final long interpolationDelayNanos;
+    private final long maxExtrapolationNanos;
+
+    // Written by update(), read by the timer thread, guarded by sampleLock
+    private final Object sampleLock = new Object();
+    private final SteamControllerParser.XboxOutput previous = new SteamControllerParser.XboxOutput();
+    private final SteamControllerParser.XboxOutput latest = new SteamControllerParser.XboxOutput();
+    private long previousNanos;
+    private long latestNanos;
+    private int sampleCount = 0;
+    private long sampleSeq = 0;
+    // Reports that changed the buttons, oldest first, not yet written
+    private final SteamControllerParser.XboxOutput[] edgeFrames = new SteamControllerParser.XboxOutput[EDGE_QUEUE_CAPACITY];
+    private int edgeHead = 0;
+    private int edgeCount = 0;
+
+    // Timer thread only
+    private final SteamControllerParser.XboxOutput from = new SteamControllerParser.XboxOutput();
+    private final SteamControllerParser.XboxOutput to = new SteamControllerParser.XboxOutput();
+    private final SteamControllerParser.XboxOutput frame = new SteamControllerParser.XboxOutput();
+    private final SteamControllerParser.XboxOutput edgeFrame = new SteamControllerParser.XboxOutput();
+    private long heldSeq = -1;
+    private long idleSeq = -1; // Sample sequence for which there was nothing left to write
+
+    private volatile boolean edgePending = false;
+    private volatile boolean sleeping = false;
+    private volatile boolean running = false;
+    private volatile Thread timerThread;
+    private volatile long emittedFrames = 0;
+    private volatile long buttonEdges = 0;
+    private volatile long mergedEdges = 0;
+
+    public OutputScheduler(VirtualController delegate, int rateHz) {
+        this(delegate, rateHz, 0, DEFAULT_MAX_EXTRAPOLATION_NANOS);
+    }
+
+    /**
+     * @param rateHz output rate, e.g. 250, 500 or 1000.
+     * @param interpolationDelayNanos how far in the past frames are rendered; 0 means
+     *        no added latency (extrapolate only), about one report interval gives smooth interpolation.
+     * @param maxExtrapolationNanos how long past the latest report axes keep moving before being held.
+     */
+    public OutputScheduler(VirtualController delegate, int rateHz, long interpolationDelayNanos, long maxExtrapolationNanos) {
+        if (rateHz <= 0) {
+            throw new IllegalArgumentException("Output rate must be positive: " + rateHz);
+        }
+        this.delegate = delegate;
+        this.periodNanos = 1_000_000_000L / rateHz;
+        this.interpolationDelayNanos = interpolationDelayNanos;
+        this.maxExtrapolationNanos = maxExtrapolationNanos;
+        for (int i = 0; i < EDGE_QUEUE_CAPACITY; i++) {
+            edgeFrames[i] = new SteamControllerParser.XboxOutput();
+        }
+    }
+
+    @Override
+    public boolean initialize() {
+        if (!delegate.initialize()) {
+            return false;
+        }
+        if (!running) {
+            running = true;
+            Thread thread = new Thread(this::runTimer, "OutputScheduler");
+            thread.setPriority(Thread.MAX_PRIORITY);
+            timerThread = thread;
+            thread.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+        delegate.destroy();
+    }
+
+    /** Stops the timer thread but leaves the wrapped controller registered, e.g. to return it to a pool. */
+    public void stop() {
+        running = false;
+        Thread thread = timerThread;
+        timerThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (sampleLock) {
+            sampleCount = 0;
+            edgeCount = 0;
+        }
+    }
+
+    @Override
+    public void update(SteamControllerParser.XboxOutput state) {
+        if (!running) {
+            throw new IllegalStateException("Not initialized");
+        }
+        boolean edge;
+        synchronized (sampleLock) {
+            edge = sampleCount == 0 || !latest.buttonsEqual(state);
+            if (edge) {
+                queueEdge(state);
+            }
+            previous.copyFrom(latest);
+            previousNanos = latestNanos;
+            latest.copyFrom(state);
+            latestNanos = System.nanoTime();
+            if (sampleCount < 2) sampleCount++;
+            sampleSeq++;
+        }
+        if (edge) {
+            edgePending = true;
+        }
+        if (edge || sleeping) {
+            Thread thread = timerThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /** Appends an edge frame, or replaces the newest one if the queue is full. Holds sampleLock. */
+    private void queueEdge(SteamControllerParser.XboxOutput state) {
+        if (edgeCount == EDGE_QUEUE_CAPACITY) {
+            edgeFrames[(edgeHead + edgeCount - 1) % EDGE_QUEUE_CAPACITY].copyFrom(state);
+            mergedEdges++;
+            return;
+        }
+        edgeFrames[(edgeHead + edgeCount) % EDGE_QUEUE_CAPACITY].copyFrom(state);
+        edgeCount++;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /** Changes the output rate, e.g. to save power; takes effect from the next tick. */
+    public void setRateHz(int rateHz) {
+        if (rateHz <= 0) {
+            throw new IllegalArgumentException("Output rate must be positive: " + rateHz);
+        }
+        periodNanos = 1_000_000_000L / rateHz;
+    }
+
+    public int getRateHz() {
+        return (int) (1_000_000_000L / periodNanos);
+    }
+
+    public long getEmittedFrames() {
+        return emittedFrames;
+    }
+
+    public long getButtonEdges() {
+        return buttonEdges;
+    }
+
+    /** Edges overwritten by a later one because the edge queue was full. */
+    public long getMergedEdges() {
+        return mergedEdges;
+    }
+
+    /** Whether the timer thread is asleep waiting for the next report. */
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    private void runTimer() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now < nextTick && !edgePending) {
+                LockSupport.parkNanos(this, nextTick - now);
+                continue;
+            }
+            boolean wrote;
+            try {
+                if (edgePending) {
+                    edgePending = false;
+                    writeEdgeFrames();
+                }
+                wrote = emitFrame(now);
+            } catch (IllegalStateException e) {
+                // Delegate was destroyed underneath us; stop ticking
+                running = false;
+                break;
+            }
+            if (!wrote) {
+                sleepUntilUpdate();
+                nextTick = System.nanoTime();
+                continue;
+            }
+            if (now >= nextTick) {
+                nextTick += periodNanos;
+                if (nextTick <= now) {
+                    nextTick = now + periodNanos; // Skip missed ticks instead of bursting
+                }
+            }
+        }
+    }
+
+    /** Writes the queued edge frames in arrival order. */
+    private void writeEdgeFrames() {
+        while (true) {
+            synchronized (sampleLock) {
+                if (edgeCount == 0) return;
+                edgeFrame.copyFrom(edgeFrames[edgeHead]);
+                edgeHead = (edgeHead + 1) % EDGE_QUEUE_CAPACITY;
+                edgeCount--;
+            }
+            delegate.update(edgeFrame);
+            buttonEdges++;
+            emittedFrames++;
+        }
+    }
+
+    /**
+     * Parks until update() brings a sample newer than idleSeq. Setting sleeping
+     * before looking at the sequence, while update() stores the sample before
+     * looking at sleeping, means one of the two always sees the other.
+     */
+    private void sleepUntilUpdate() {
+        sleeping = true;
+        try {
+            while (running && !edgePending) {
+                synchronized (sampleLock) {
+                    if (sampleSeq != idleSeq) return;
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            sleeping = false;
+        }
+    }
+
+    /** @return false if there was nothing to write, i.e. no report yet or the held frame already went out. */
+    private boolean emitFrame(long now) {
+        long fromNanos;
+        long toNanos;
+        int samples;
+        long seq;
+        synchronized (sampleLock) {
+            samples = sampleCount;
+            if (samples == 0) {
+                idleSeq = sampleSeq;
+                return false;
+            }
+            from.copyFrom(samples > 1 ? previous : latest);
+            to.copyFrom(latest);
+            fromNanos = previousNanos;
+            toNanos = latestNanos;
+            seq = sampleSeq;
+        }
+
+        long renderNanos = now - interpolationDelayNanos;
+        long span = toNanos - fromNanos;
+        float t;
+        if (samples < 2 || span <= 0) {
+            t = 1f;
+        } else if (renderNanos <= toNanos) {
+            t = Math.max(0f, (float) (renderNanos - fromNanos) / span); // Interpolate
+        } else {
+            long ahead = renderNanos - toNanos;
+            if (ahead > maxExtrapolationNanos) {
+                // Holding the latest report: nothing new to write once it went out
+                if (heldSeq == seq) {
+                    idleSeq = seq;
+                    return false;
+                }
+                heldSeq = seq;
+                ahead = 0;
+            }
+            t = 1f + (float) ahead / span; // Extrapolate
+        }
+
+        frame.copyButtonsFrom(to); // Buttons are never blended
+        frame.leftStickX = blend(from.leftStickX, to.leftStickX, t, -1f);
+        frame.leftStickY = blend(from.leftStickY, to.leftStickY, t, -1f);
+        frame.rightStickX = blend(from.rightStickX, to.rightStickX, t, -1f);
+        frame.rightStickY = blend(from.rightStickY, to.rightStickY, t, -1f);
+        frame.leftTrigger = blend(from.leftTrigger, to.leftTrigger, t, 0f);
+        frame.rightTrigger = blend(from.rightTrigger, to.rightTrigger, t, 0f);
+
+        delegate.update(frame);
+        emittedFrames++;
+        return true;
+    }
+
+    private static float blend(float a, float b, float t, float min) {
+        float value = a + (b - a) * t;
+        return value < min ? min : (value > 1f ? 1f : value);
+    }
+}
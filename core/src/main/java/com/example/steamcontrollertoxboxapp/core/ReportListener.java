@@ -0,0 +1,14 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+/**
+ * Receives raw controller input reports from an input source (BLE, hidraw, trace).
+ */
+public interface ReportListener {
+    /**
+     * @param data the raw report; ownership passes to the listener, except that
+     *             sources recycling their buffers (see {@link com.example.steamcontrollertoxboxapp.input.HidrawInputSource})
+     *             reuse it after a documented number of further reports.
+     * @param arrivalNanos System.nanoTime() taken as soon as the report reached the app.
+     */
+    void onReport(byte[] data, long arrivalNanos);
+}
@@ -3,6 +3,9 @@ package com.example.steamcontrollertoxboxapp.core;
 public class SteamControllerParser {
     private static final String TAG = "SteamControllerParser";
     
+    /** Bytes of a report holding the input state; anything beyond is sensor data. */
+    public static final int INPUT_REPORT_LENGTH = 20;
+
     // Steam Controller input report structure constants
     private static final int REPORT_ID_OFFSET = 0;
     private static final int BUTTONS_OFFSET = 1;
@@ -13,6 +16,12 @@ public class SteamControllerParser {
     private static final int RIGHT_STICK_X_OFFSET = 9;
     private static final int RIGHT_STICK_Y_OFFSET = 11;
     private static final int TOUCHPAD_OFFSET = 13;
+    // Angular velocity (x, y, z), appended to the report when the IMU is enabled (VERIFY offset)
+    private static final int GYRO_OFFSET = 20;
+    private static final int GYRO_REPORT_LENGTH = GYRO_OFFSET + 6;
+    // Battery status report, identified by its report ID (VERIFY offset)
+    private static final int BATTERY_VOLTAGE_OFFSET = 12;
+    private static final int BATTERY_REPORT_LENGTH = BATTERY_VOLTAGE_OFFSET + 2;
     
     // Steam Controller button bitmasks
     private static final int BUTTON_A = 0x01;
@@ -47,14 +56,54 @@ public class SteamControllerParser {
         public boolean buttonStart;
         public boolean buttonLStick;
         public boolean buttonRStick;
+
+        /** Copies every field of other into this instance without allocating. */
+        public void copyFrom(XboxOutput other) {
+            leftStickX = other.leftStickX;
+            leftStickY = other.leftStickY;
+            rightStickX = other.rightStickX;
+            rightStickY = other.rightStickY;
+            leftTrigger = other.leftTrigger;
+            rightTrigger = other.rightTrigger;
+            copyButtonsFrom(other);
+        }
+
+        public void copyButtonsFrom(XboxOutput other) {
+            buttonA = other.buttonA;
+            buttonB = other.buttonB;
+            buttonX = other.buttonX;
+            buttonY = other.buttonY;
+            buttonLB = other.buttonLB;
+            buttonRB = other.buttonRB;
+            buttonBack = other.buttonBack;
+            buttonStart = other.buttonStart;
+            buttonLStick = other.buttonLStick;
+            buttonRStick = other.buttonRStick;
+        }
+
+        public boolean buttonsEqual(XboxOutput other) {
+            return buttonA == other.buttonA && buttonB == other.buttonB
+                    && buttonX == other.buttonX && buttonY == other.buttonY
+                    && buttonLB == other.buttonLB && buttonRB == other.buttonRB
+                    && buttonBack == other.buttonBack && buttonStart == other.buttonStart
+                    && buttonLStick == other.buttonLStick && buttonRStick == other.buttonRStick;
+        }
     }
     
     public static XboxOutput parseInput(byte[] data) {
-        if (data == null || data.length < 20) {
-            return null;
-        }
-        
         XboxOutput output = new XboxOutput();
+        return parseInput(data, output) ? output : null;
+    }
+
+    /**
+     * Allocation-free variant of {@link #parseInput(byte[])}: decodes the report
+     * into a caller-owned output so hot paths can reuse a single instance.
+     * @return false if the report is too short, in which case output is untouched.
+     */
+    public static boolean parseInput(byte[] data, XboxOutput output) {
+        if (data == null || data.length < INPUT_REPORT_LENGTH) {
+            return false;
+        }
         
         // Parse buttons (2 bytes)
         int buttons = ((data[BUTTONS_OFFSET + 1] & 0xFF) << 8 | (data[BUTTONS_OFFSET] & 0xFF));
@@ -81,9 +130,40 @@ public class SteamControllerParser {
         output.rightStickX = normalizeAxis(readShort(data, RIGHT_STICK_X_OFFSET));
         output.rightStickY = normalizeAxis(readShort(data, RIGHT_STICK_Y_OFFSET));
         
-        return output;
+        return true;
     }
     
+    /** Whether the report carries gyro data, i.e. the controller's IMU is enabled. */
+    public static boolean hasGyro(byte[] data) {
+        return data != null && data.length >= GYRO_REPORT_LENGTH;
+    }
+
+    /**
+     * Raw angular velocity around one axis, 0 = x, 1 = y, 2 = z.
+     * Only valid if {@link #hasGyro} is true for the report.
+     */
+    public static short readGyro(byte[] data, int axis) {
+        return readShort(data, GYRO_OFFSET + 2 * axis);
+    }
+
+    /** Whether the report is a battery status report rather than input. */
+    public static boolean isBatteryReport(byte[] data) {
+        return data != null && data.length >= BATTERY_REPORT_LENGTH
+                && (data[REPORT_ID_OFFSET] & 0xFF) == SteamControllerDefs.EventKey.BATTERY.getValue();
+    }
+
+    /**
+     * Decodes a battery status report into a caller-owned event.
+     * @return false if it is not a battery report, in which case event is untouched.
+     */
+    public static boolean parseBattery(byte[] data, SteamControllerDefs.BatteryEvent event) {
+        if (!isBatteryReport(data)) {
+            return false;
+        }
+        event.voltage = readShort(data, BATTERY_VOLTAGE_OFFSET);
+        return true;
+    }
+
     private static short readShort(byte[] data, int offset) {
         return (short)((data[offset + 1] & 0xFF) << 8 | (data[offset] & 0xFF));
     }
@@ -17,5 +17,4 @@ public interface VirtualController {
     boolean initialize();
     void update(SteamControllerParser.XboxOutput state);
     void destroy();
-    SteamControllerParser.XboxOutput getLastState();
 }
@@ -0,0 +1,172 @@
+package com.example.steamcontrollertoxboxapp.input;
+
+import com.example.steamcontrollertoxboxapp.logging.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads input reports from a Linux hidraw node (/dev/hidrawN) of a wired or
+ * dongle-connected controller, at whatever rate the device reports (1 kHz for
+ * the Steam Controller over USB).
+ *
+ * A hidraw read returns exactly one report, so by default every read is one
+ * report. With a fixed report size the stream is split into reports of that
+ * size instead, which also works for plain files and pipes that do not keep
+ * report boundaries.
+ *
+ * Reads go into one reusable direct buffer and are copied into a fixed ring of
+ * report arrays, so steady-state reading does not allocate. A delivered array
+ * is reused after {@link #BUFFER_RING_SIZE} further reports, more than the
+ * report queue plus the report being processed can hold on to.
+ */
+public class HidrawInputSource implements InputSource {
+    private static final String TAG = "HidrawInputSource";
+
+    public static final int BUFFER_RING_SIZE = 256;
+    // HID reports cannot be larger than this
+    private static final int MAX_REPORT_SIZE = 4096;
+    private static final long STOP_TIMEOUT_MILLIS = 1000;
+
+    private final Path device;
+    private final int reportSize;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(MAX_REPORT_SIZE);
+    private final byte[][] reportRing = new byte[BUFFER_RING_SIZE][];
+    private int ringIndex = 0;
+
+    private volatile boolean running = false;
+    private volatile long reportCount = 0;
+    private volatile FileChannel channel;
+    private Thread readerThread;
+
+    /** One report per read, as hidraw delivers them. */
+    public HidrawInputSource(Path device) {
+        this(device, 0);
+    }
+
+    /** @param reportSize split the stream into reports of this many bytes, or 0 for one report per read. */
+    public HidrawInputSource(Path device, int reportSize) {
+        if (reportSize < 0 || reportSize > MAX_REPORT_SIZE) {
+            throw new IllegalArgumentException("Invalid report size " + reportSize);
+        }
+        this.device = device;
+        this.reportSize = reportSize;
+    }
+
+    @Override
+    public String getName() {
+        return device.toString();
+    }
+
+    public long getReportCount() {
+        return reportCount;
+    }
+
+    @Override
+    public synchronized void start(Listener listener) throws IOException {
+        if (running) return;
+        FileChannel opened = FileChannel.open(device, StandardOpenOption.READ);
+        channel = opened;
+        running = true;
+        readerThread = new Thread(() -> readLoop(opened, listener), "HidrawReader-" + device.getFileName());
+        readerThread.setPriority(Thread.MAX_PRIORITY);
+        readerThread.start();
+        Log.i(TAG, "Reading reports from " + device);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        // Interrupting closes the channel and unblocks a read waiting for the next report
+        readerThread.interrupt();
+        try {
+            readerThread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeChannel();
+        Log.i(TAG, "Stopped reading " + device + " after " + reportCount + " reports");
+    }
+
+    private void readLoop(FileChannel source, Listener listener) {
+        IOException error = null;
+        try {
+            while (running) {
+                int length = reportSize > 0 ? readFixedSize(source) : readOne(source);
+                if (length < 0) {
+                    break; // End of stream
+                }
+                long arrivalNanos = System.nanoTime();
+                if (length == 0) {
+                    continue;
+                }
+                byte[] report = nextReportBuffer(length);
+                readBuffer.flip();
+                readBuffer.get(report, 0, length);
+                reportCount++;
+                listener.onReport(report, arrivalNanos);
+            }
+        } catch (ClosedChannelException e) {
+            // stop() interrupted the read and closed the channel
+        } catch (IOException e) {
+            error = e;
+        }
+
+        if (running) {
+            // Ended on its own, e.g. the controller was unplugged
+            running = false;
+            closeChannel();
+            if (error != null) {
+                Log.w(TAG, "Reading " + device + " failed: " + error.getMessage());
+            } else {
+                Log.i(TAG, "End of stream on " + device);
+            }
+            listener.onSourceClosed(error);
+        }
+    }
+
+    /** One read, one report. @return the report length, or -1 at end of stream. */
+    private int readOne(FileChannel source) throws IOException {
+        readBuffer.clear();
+        return source.read(readBuffer);
+    }
+
+    /** Reads exactly reportSize bytes. @return reportSize, or -1 at end of stream. */
+    private int readFixedSize(FileChannel source) throws IOException {
+        readBuffer.clear();
+        readBuffer.limit(reportSize);
+        while (readBuffer.hasRemaining()) {
+            if (source.read(readBuffer) < 0) {
+                return -1; // A trailing partial report is discarded
+            }
+        }
+        return reportSize;
+    }
+
+    private byte[] nextReportBuffer(int length) {
+        byte[] buffer = reportRing[ringIndex];
+        if (buffer == null || buffer.length != length) {
+            // Only for the first pass around the ring, or if the device changes report size
+            buffer = new byte[length];
+            reportRing[ringIndex] = buffer;
+        }
+        ringIndex = (ringIndex + 1) % BUFFER_RING_SIZE;
+        return buffer;
+    }
+
+    private void closeChannel() {
+        FileChannel c = channel;
+        channel = null;
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing " + device, e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.steamcontrollertoxboxapp.input;
+
+import com.example.steamcontrollertoxboxapp.core.ReportListener;
+
+import java.io.IOException;
+
+/**
+ * A producer of raw controller reports other than the Android BLE stack, e.g. a
+ * wired or dongle controller read through hidraw. Reports are delivered on a
+ * thread owned by the source.
+ */
+public interface InputSource {
+    interface Listener extends ReportListener {
+        /**
+         * The source stopped on its own: end of stream, device unplugged or read error.
+         * Not called after {@link #stop()}.
+         * @param error the cause, or null at a clean end of stream.
+         */
+        void onSourceClosed(IOException error);
+    }
+
+    String getName();
+
+    /** Opens the device on the calling thread, so failures surface here, then starts delivering reports. */
+    void start(Listener listener) throws IOException;
+
+    /** Stops delivering reports and closes the device. Blocks until the reader thread has exited. */
+    void stop();
+}
@@ -0,0 +1,183 @@
+package com.example.steamcontrollertoxboxapp.logging;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring of structured events (a {@link JournalEvent} code plus up to
+ * three int arguments) for paths that must not stall on logging.
+ *
+ * record() never allocates, formats, locks or makes a system call: it claims a
+ * slot with a CAS, fills in primitives and publishes the slot. A background
+ * thread drains the ring every {@link #DRAIN_INTERVAL_MILLIS} ms and formats the
+ * events into {@link Log}, i.e. logcat or stderr. Each event type is rate limited
+ * where it is recorded, so an error storm costs a couple of atomic operations per
+ * occurrence and shows up in the log as a count of suppressed events. When the
+ * ring is full new events are dropped and counted.
+ */
+public final class EventJournal {
+    private static final String TAG = "EventJournal";
+
+    public static final int CAPACITY = 1024;
+    private static final int MAX_ARGS = 3;
+    private static final long DRAIN_INTERVAL_MILLIS = 100;
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private static final JournalEvent[] EVENTS = JournalEvent.values();
+    private static final EventJournal INSTANCE = new EventJournal(CAPACITY);
+
+    private final int mask;
+    private final int[] codes;
+    private final long[] timestamps;
+    private final int[] args;
+    private final Throwable[] throwables;
+    // Slot i holds sequence s once published[i] == s + 1
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong(); // Next slot to drain
+    private final AtomicLong tail = new AtomicLong(); // Next slot to claim
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    // Per event type rate limiting
+    private final AtomicLongArray windowStart = new AtomicLongArray(EVENTS.length);
+    private final AtomicIntegerArray windowCount = new AtomicIntegerArray(EVENTS.length);
+    private final AtomicLongArray suppressed = new AtomicLongArray(EVENTS.length);
+
+    EventJournal(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        codes = new int[size];
+        timestamps = new long[size];
+        args = new int[size * MAX_ARGS];
+        throwables = new Throwable[size];
+        published = new AtomicLongArray(size);
+        // nanoTime() has an arbitrary origin and may be negative: start every window
+        // as already expired, so the first event of each type opens one at its own time
+        long expired = System.nanoTime() - RATE_WINDOW_NANOS - 1;
+        for (int i = 0; i < EVENTS.length; i++) {
+            windowStart.set(i, expired);
+        }
+    }
+
+    static {
+        Thread drainer = new Thread(() -> {
+            while (true) {
+                LockSupport.parkNanos(DRAIN_INTERVAL_MILLIS * 1_000_000L);
+                INSTANCE.drain();
+            }
+        }, "EventJournal");
+        drainer.setDaemon(true);
+        drainer.setPriority(Thread.MIN_PRIORITY);
+        drainer.start();
+    }
+
+    public static void record(JournalEvent event) {
+        INSTANCE.append(event, null, 0, 0, 0);
+    }
+
+    public static void record(JournalEvent event, int arg0) {
+        INSTANCE.append(event, null, arg0, 0, 0);
+    }
+
+    public static void record(JournalEvent event, int arg0, int arg1) {
+        INSTANCE.append(event, null, arg0, arg1, 0);
+    }
+
+    public static void record(JournalEvent event, int arg0, int arg1, int arg2) {
+        INSTANCE.append(event, null, arg0, arg1, arg2);
+    }
+
+    /** Keeps a reference to an already existing throwable, its stack trace is logged when drained. */
+    public static void record(JournalEvent event, Throwable throwable, int arg0) {
+        INSTANCE.append(event, throwable, arg0, 0, 0);
+    }
+
+    /** Drains everything recorded so far on the calling thread, e.g. before exiting. */
+    public static void flush() {
+        INSTANCE.drain();
+    }
+
+    void append(JournalEvent event, Throwable throwable, int arg0, int arg1, int arg2) {
+        long now = System.nanoTime();
+        if (!admit(event.ordinal(), event.maxPerSecond, now)) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        codes[slot] = event.ordinal();
+        timestamps[slot] = now;
+        args[slot * MAX_ARGS] = arg0;
+        args[slot * MAX_ARGS + 1] = arg1;
+        args[slot * MAX_ARGS + 2] = arg2;
+        throwables[slot] = throwable;
+        published.lazySet(slot, sequence + 1); // Publishes the plain writes above
+    }
+
+    private boolean admit(int code, int maxPerSecond, long now) {
+        long start = windowStart.get(code);
+        if (now - start > RATE_WINDOW_NANOS && windowStart.compareAndSet(code, start, now)) {
+            windowCount.set(code, 0);
+        }
+        if (windowCount.incrementAndGet(code) > maxPerSecond) {
+            suppressed.incrementAndGet(code);
+            return false;
+        }
+        return true;
+    }
+
+    synchronized void drain() {
+        long h = head.get();
+        while (true) {
+            int slot = (int) (h & mask);
+            if (published.get(slot) != h + 1) {
+                break; // Empty, or the next slot is claimed but not yet filled in
+            }
+            JournalEvent event = EVENTS[codes[slot]];
+            int base = slot * MAX_ARGS;
+            String message = String.format(Locale.US, event.format, args[base], args[base + 1], args[base + 2]);
+            Throwable throwable = throwables[slot];
+            throwables[slot] = null;
+            h++;
+            head.set(h); // Frees the slot
+            emit(event.priority, event.tag, message, throwable);
+        }
+
+        for (JournalEvent event : EVENTS) {
+            long count = suppressed.getAndSet(event.ordinal(), 0);
+            if (count > 0) {
+                emit(event.priority, event.tag, count + " more " + event + " events suppressed", null);
+            }
+        }
+        long dropped = droppedEvents.getAndSet(0);
+        if (dropped > 0) {
+            Log.w(TAG, dropped + " events dropped, journal full");
+        }
+    }
+
+    private static void emit(int priority, String tag, String message, Throwable throwable) {
+        switch (priority) {
+            case Log.ERROR:
+                Log.e(tag, message, throwable);
+                break;
+            case Log.WARN:
+                Log.w(tag, message, throwable);
+                break;
+            case Log.INFO:
+                Log.i(tag, message);
+                break;
+            default:
+                Log.d(tag, message);
+                break;
+        }
+    }
+}
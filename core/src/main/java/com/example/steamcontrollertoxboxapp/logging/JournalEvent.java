@@ -0,0 +1,27 @@
+package com.example.steamcontrollertoxboxapp.logging;
+
+/**
+ * Structured events that may be raised on the input hot path and are therefore
+ * recorded through the {@link EventJournal} instead of being logged directly.
+ * The message is formatted with the event's int arguments on the drain thread.
+ */
+public enum JournalEvent {
+    SYN_REPORT_FAILED("UInputController", Log.ERROR, 1, "Failed to send SYN_REPORT (fd=%d)"),
+    DISPATCH_ERROR("ReportDispatcher", Log.ERROR, 1, "Error updating virtual controller"),
+    INLINE_BUDGET_FALLBACK("ReportDispatcher", Log.WARN, 5,
+            "Sink exceeded inline budget %d times in a row (%d us), falling back to queued dispatch"),
+    WORKER_ERROR("SessionWorkerPool", Log.ERROR, 1, "Unexpected error in worker %d");
+
+    final String tag;
+    final int priority;
+    /** Occurrences per second passed on to the log; the rest are only counted. */
+    final int maxPerSecond;
+    final String format;
+
+    JournalEvent(String tag, int priority, int maxPerSecond, String format) {
+        this.tag = tag;
+        this.priority = priority;
+        this.maxPerSecond = maxPerSecond;
+        this.format = format;
+    }
+}
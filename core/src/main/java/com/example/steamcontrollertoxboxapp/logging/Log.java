@@ -0,0 +1,83 @@
+package com.example.steamcontrollertoxboxapp.logging;
+
+import java.io.PrintStream;
+
+/**
+ * Logging facade for the platform-independent modules, with the same call shape
+ * as android.util.Log. Messages go to a pluggable {@link Sink}: the Android app
+ * installs one that forwards to logcat, the headless daemon keeps the default
+ * stderr sink.
+ */
+public final class Log {
+    // Same values as android.util.Log, so sinks can pass them straight through
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    public interface Sink {
+        void log(int priority, String tag, String message, Throwable throwable);
+    }
+
+    /** Writes "I/Tag: message" lines to a stream, skipping anything below minPriority. */
+    public static class StreamSink implements Sink {
+        private final PrintStream stream;
+        private final int minPriority;
+
+        public StreamSink(PrintStream stream, int minPriority) {
+            this.stream = stream;
+            this.minPriority = minPriority;
+        }
+
+        @Override
+        public void log(int priority, String tag, String message, Throwable throwable) {
+            if (priority < minPriority) return;
+            stream.println(priorityLetter(priority) + "/" + tag + ": " + message);
+            if (throwable != null) {
+                throwable.printStackTrace(stream);
+            }
+        }
+    }
+
+    private static volatile Sink sink = new StreamSink(System.err, INFO);
+
+    private Log() {}
+
+    public static void setSink(Sink newSink) {
+        sink = newSink;
+    }
+
+    public static void d(String tag, String message) {
+        sink.log(DEBUG, tag, message, null);
+    }
+
+    public static void i(String tag, String message) {
+        sink.log(INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        sink.log(WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable throwable) {
+        sink.log(WARN, tag, message, throwable);
+    }
+
+    public static void e(String tag, String message) {
+        sink.log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        sink.log(ERROR, tag, message, throwable);
+    }
+
+    static char priorityLetter(int priority) {
+        switch (priority) {
+            case DEBUG: return 'D';
+            case INFO: return 'I';
+            case WARN: return 'W';
+            case ERROR: return 'E';
+            default: return 'V';
+        }
+    }
+}
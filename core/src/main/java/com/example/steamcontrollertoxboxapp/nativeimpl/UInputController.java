@@ -0,0 +1,155 @@
+package com.example.steamcontrollertoxboxapp.nativeimpl;
+
+import com.example.steamcontrollertoxboxapp.logging.EventJournal;
+import com.example.steamcontrollertoxboxapp.logging.JournalEvent;
+import com.example.steamcontrollertoxboxapp.logging.Log;
+import com.example.steamcontrollertoxboxapp.core.UInputConstants;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class UInputController implements VirtualController {
+    private static final String TAG = "UInputController";
+
+    /**
+     * Where input events go. The default writes to /dev/uinput through JNI;
+     * benchmarks and tests substitute a stand-in to measure or check the Java side alone.
+     */
+    public interface EventSink {
+        /** @return a descriptor >= 0, or a negative error code. */
+        int open();
+        void close(int fd);
+        boolean sendEvent(int fd, int type, int code, int value);
+    }
+
+    private native int nativeInit();
+    private native void nativeClose(int fd);
+    private native boolean nativeSendEvent(int fd, int type, int code, int value);
+
+    private final EventSink sink;
+    private int uinputFd = -1;
+
+    public UInputController() {
+        this.sink = new NativeSink();
+    }
+
+    public UInputController(EventSink sink) {
+        this.sink = sink;
+    }
+
+    // Loaded on first use of the native sink, so stand-in sinks work without the library
+    private static final class NativeLibrary {
+        static final boolean LOADED;
+
+        static {
+            boolean loaded = false;
+            try {
+                System.loadLibrary("uinput_wrapper");
+                loaded = true;
+                Log.i(TAG, "Successfully loaded native library 'uinput_wrapper'");
+            } catch (UnsatisfiedLinkError e) {
+                Log.e(TAG, "Failed to load native library 'uinput_wrapper'. Root is likely required.", e);
+            }
+            LOADED = loaded;
+        }
+
+        static void ensureLoaded() {
+        }
+    }
+
+    /**
+     * Loads the JNI library now instead of with the first native device, e.g. in
+     * parallel with other startup work. @return whether the library is available.
+     */
+    public static boolean loadNativeLibrary() {
+        return NativeLibrary.LOADED;
+    }
+
+    private final class NativeSink implements EventSink {
+        NativeSink() {
+            NativeLibrary.ensureLoaded();
+        }
+
+        @Override
+        public int open() {
+            return nativeInit();
+        }
+
+        @Override
+        public void close(int fd) {
+            nativeClose(fd);
+        }
+
+        @Override
+        public boolean sendEvent(int fd, int type, int code, int value) {
+            return nativeSendEvent(fd, type, code, value);
+        }
+    }
+
+    @Override
+    public boolean initialize() {
+        try {
+            if (uinputFd >= 0) {
+                return true; // E.g. a device handed out by UInputDevicePool
+            }
+
+            uinputFd = sink.open();
+            if (uinputFd < 0) {
+                Log.e(TAG, "Opening the uinput device failed with error code: " + uinputFd);
+                return false;
+            }
+            Log.i(TAG, "Virtual device created (fd=" + uinputFd + ")");
+            return true;
+        } catch (Exception | UnsatisfiedLinkError e) {
+            // UnsatisfiedLinkError: the native library is missing (see NativeLibrary)
+            Log.e(TAG, "Initialization failed", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (uinputFd >= 0) {
+            try {
+                sink.close(uinputFd);
+                Log.i(TAG, "Closed fd " + uinputFd);
+            } catch (Exception e) {
+                Log.e(TAG, "Error closing the uinput device", e);
+            } finally {
+                uinputFd = -1;
+            }
+        }
+    }
+
+    @Override
+    public void update(SteamControllerParser.XboxOutput state) {
+        if (uinputFd < 0) {
+            throw new IllegalStateException("Not initialized");
+        }
+
+        // Buttons
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_A, state.buttonA ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_B, state.buttonB ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_X, state.buttonX ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_Y, state.buttonY ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_TL, state.buttonLB ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_TR, state.buttonRB ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_SELECT, state.buttonBack ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_START, state.buttonStart ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_THUMBL, state.buttonLStick ? 1 : 0);
+        sink.sendEvent(uinputFd, UInputConstants.EV_KEY, UInputConstants.BTN_THUMBR, state.buttonRStick ? 1 : 0);
+
+        // Axes
+        sink.sendEvent(uinputFd, UInputConstants.EV_ABS, UInputConstants.ABS_X, (int)(state.leftStickX * 32767));
+        sink.sendEvent(uinputFd, UInputConstants.EV_ABS, UInputConstants.ABS_Y, (int)(state.leftStickY * 32767));
+        sink.sendEvent(uinputFd, UInputConstants.EV_ABS, UInputConstants.ABS_RX, (int)(state.rightStickX * 32767));
+        sink.sendEvent(uinputFd, UInputConstants.EV_ABS, UInputConstants.ABS_RY, (int)(state.rightStickY * 32767));
+        sink.sendEvent(uinputFd, UInputConstants.EV_ABS, UInputConstants.ABS_Z, (int)(state.leftTrigger * 255));
+        sink.sendEvent(uinputFd, UInputConstants.EV_ABS, UInputConstants.ABS_RZ, (int)(state.rightTrigger * 255));
+
+        if (!sink.sendEvent(uinputFd, UInputConstants.EV_SYN, UInputConstants.SYN_REPORT, 0)) {
+            EventJournal.record(JournalEvent.SYN_REPORT_FAILED, uinputFd);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.steamcontrollertoxboxapp.nativeimpl;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.logging.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Keeps registered uinput devices ready, so connecting a controller does not
+ * wait for UI_DEV_CREATE and the kernel/input stack announcing the new device.
+ *
+ * acquire() hands out a spare if there is one and refills the pool in the
+ * background; release() puts a device back in neutral state instead of
+ * destroying it, as long as the pool is not full. Spare devices stay visible to
+ * the system as idle pads, so the pool is kept small.
+ */
+public class UInputDevicePool {
+    private static final String TAG = "UInputDevicePool";
+
+    public static final int DEFAULT_SPARE_COUNT = 1;
+    private static final SteamControllerParser.XboxOutput NEUTRAL = new SteamControllerParser.XboxOutput();
+
+    private final Supplier<UInputController> factory;
+    private final int spareCount;
+    private final ArrayDeque<UInputController> spares = new ArrayDeque<>();
+    private final ExecutorService refiller;
+    private boolean closed = false;
+    private int refillsPending = 0;
+
+    private volatile long hits = 0;
+    private volatile long misses = 0;
+
+    public UInputDevicePool(Supplier<UInputController> factory, int spareCount) {
+        if (spareCount < 0) {
+            throw new IllegalArgumentException("Spare count must not be negative");
+        }
+        this.factory = factory;
+        this.spareCount = spareCount;
+        this.refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "UInputDevicePool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Creates spares in the background until the pool is full. */
+    public synchronized void prefill() {
+        while (!closed && spares.size() + refillsPending < spareCount) {
+            refillsPending++;
+            refiller.execute(this::refillOne);
+        }
+    }
+
+    /**
+     * An initialized device, from the pool if one is ready, otherwise created on
+     * the calling thread. @return null if the device cannot be created.
+     */
+    public UInputController acquire() {
+        UInputController device;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Pool closed");
+            }
+            device = spares.pollFirst();
+        }
+        if (device != null) {
+            hits++;
+        } else {
+            misses++;
+            device = create();
+        }
+        prefill();
+        return device;
+    }
+
+    /**
+     * Takes back a device a session is done with: writes a neutral state and keeps
+     * it as a spare, or destroys it if the pool is full.
+     */
+    public void release(UInputController device) {
+        try {
+            device.update(NEUTRAL);
+        } catch (IllegalStateException e) {
+            return; // Already destroyed
+        }
+        if (!offer(device)) {
+            device.destroy();
+        }
+    }
+
+    /** Adds an initialized device, e.g. one created to check uinput access. @return false if the pool is full. */
+    public synchronized boolean offer(UInputController device) {
+        if (closed || spares.size() >= spareCount) {
+            return false;
+        }
+        spares.addLast(device);
+        return true;
+    }
+
+    /** Destroys all spares; devices handed out must still be released or destroyed by their owners. */
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        refiller.shutdown();
+        UInputController device;
+        while ((device = pollSpare()) != null) {
+            device.destroy();
+        }
+    }
+
+    public synchronized int getSpareCount() {
+        return spares.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    private synchronized UInputController pollSpare() {
+        return spares.pollFirst();
+    }
+
+    private void refillOne() {
+        UInputController device = create();
+        boolean kept;
+        synchronized (this) {
+            refillsPending--;
+            kept = device != null && !closed && spares.size() < spareCount;
+            if (kept) {
+                spares.addLast(device);
+            }
+        }
+        if (device != null && !kept) {
+            device.destroy();
+        }
+    }
+
+    private UInputController create() {
+        long start = System.nanoTime();
+        UInputController device = factory.get();
+        if (!device.initialize()) {
+            return null;
+        }
+        Log.d(TAG, "Created device in " + (System.nanoTime() - start) / 1000 + " us");
+        return device;
+    }
+}
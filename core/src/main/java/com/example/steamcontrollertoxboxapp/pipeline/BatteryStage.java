@@ -0,0 +1,47 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerDefs;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+/**
+ * Takes battery status reports out of the input stream and keeps the last
+ * controller voltage for power decisions. Sits in front of the decode stage:
+ * a battery report carries no input and ends the pipeline there, counted as
+ * dropped; input reports pass through untouched.
+ */
+public class BatteryStage implements PipelineStage {
+    private final SteamControllerDefs.BatteryEvent event = new SteamControllerDefs.BatteryEvent();
+    private volatile int voltageMillivolts = 0;
+    private volatile long updatedNanos = 0;
+    private volatile long batteryReports = 0;
+
+    @Override
+    public String getName() {
+        return "battery";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        if (!SteamControllerParser.parseBattery(frame.rawData, event)) {
+            return true;
+        }
+        voltageMillivolts = event.voltage & 0xFFFF;
+        updatedNanos = frame.arrivalNanos;
+        batteryReports++;
+        return false;
+    }
+
+    /** Last reported controller voltage in mV, 0 if none was reported yet. */
+    public int getVoltageMillivolts() {
+        return voltageMillivolts;
+    }
+
+    /** System.nanoTime() of the last battery report, 0 if none. */
+    public long getUpdatedNanos() {
+        return updatedNanos;
+    }
+
+    public long getBatteryReports() {
+        return batteryReports;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+/**
+ * Decodes the raw report into the frame's XboxOutput, keeping an unfiltered copy
+ * and the gyro if present; drops reports that are too short.
+ */
+public class DecodeStage implements PipelineStage {
+    @Override
+    public String getName() {
+        return "decode";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        byte[] data = frame.rawData;
+        if (!SteamControllerParser.parseInput(data, frame.output)) {
+            return false;
+        }
+        frame.decoded.copyFrom(frame.output);
+        frame.hasGyro = SteamControllerParser.hasGyro(data);
+        if (frame.hasGyro) {
+            frame.gyroX = SteamControllerParser.readGyro(data, 0);
+            frame.gyroY = SteamControllerParser.readGyro(data, 1);
+            frame.gyroZ = SteamControllerParser.readGyro(data, 2);
+        }
+        return true;
+    }
+}
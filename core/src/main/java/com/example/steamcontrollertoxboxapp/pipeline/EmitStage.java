@@ -0,0 +1,26 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+
+/**
+ * Writes the frame to the virtual controller.
+ * IllegalStateException from a destroyed controller propagates to the caller.
+ */
+public class EmitStage implements PipelineStage {
+    private final VirtualController virtualController;
+
+    public EmitStage(VirtualController virtualController) {
+        this.virtualController = virtualController;
+    }
+
+    @Override
+    public String getName() {
+        return "emit";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        virtualController.update(frame.output);
+        return true;
+    }
+}
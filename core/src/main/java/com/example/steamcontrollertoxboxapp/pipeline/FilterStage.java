@@ -0,0 +1,23 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+
+/** Smooths the analog axes using the report arrival time as the filter clock. */
+public class FilterStage implements PipelineStage {
+    private final OneEuroFilter filter;
+
+    public FilterStage(OneEuroFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public String getName() {
+        return "filter";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        filter.filter(frame.output, frame.arrivalNanos);
+        return true;
+    }
+}
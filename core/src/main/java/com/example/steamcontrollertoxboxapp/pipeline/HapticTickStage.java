@@ -0,0 +1,93 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.HapticSink;
+
+/**
+ * Trackpad feedback: a light tick on the right pad each time the thumb crosses
+ * one of {@link #RING_COUNT} concentric rings, and a stronger one on the left
+ * pad when the thumb moves into another D-pad region. Works on the decoded
+ * positions, before smoothing, so ticks line up with the thumb.
+ *
+ * Placed after the emit stage so it never delays the uinput write; requests
+ * go to a {@link HapticSink} that must not block.
+ */
+public class HapticTickStage implements PipelineStage {
+    static final int RING_COUNT = 4;
+    // Below this radius the thumb is at the center: no ring, no D-pad region
+    static final float CENTER_RADIUS = 0.25f;
+    static final int TICK_AMPLITUDE = 400;
+    static final int REGION_AMPLITUDE = 1000;
+
+    private static final int REGION_NONE = -1;
+
+    private final HapticSink sink;
+    private volatile boolean enabled = true;
+    private int ring = 0;
+    private int region = REGION_NONE;
+    private long requested = 0;
+
+    public HapticTickStage(HapticSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public String getName() {
+        return "haptics";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        if (!enabled) {
+            return true;
+        }
+        int newRing = ringOf(frame.decoded.rightStickX, frame.decoded.rightStickY);
+        if (newRing != ring) {
+            ring = newRing;
+            requested++;
+            sink.requestPulse(HapticSink.PAD_RIGHT, TICK_AMPLITUDE, HapticSink.PRIORITY_TICK);
+        }
+        int newRegion = regionOf(frame.decoded.leftStickX, frame.decoded.leftStickY);
+        if (newRegion != region) {
+            region = newRegion;
+            if (newRegion != REGION_NONE) { // Leaving for the center is not worth a tick
+                requested++;
+                sink.requestPulse(HapticSink.PAD_LEFT, REGION_AMPLITUDE, HapticSink.PRIORITY_REGION);
+            }
+        }
+        return true;
+    }
+
+    /** 0 at the center, 1..RING_COUNT outwards. */
+    static int ringOf(float x, float y) {
+        float radius = (float) Math.sqrt(x * x + y * y);
+        if (radius < CENTER_RADIUS) {
+            return 0;
+        }
+        int ring = 1 + (int) ((radius - CENTER_RADIUS) / (1f - CENTER_RADIUS) * RING_COUNT);
+        return Math.min(ring, RING_COUNT);
+    }
+
+    /** Up, right, down, left as 0-3 by the dominant axis, or REGION_NONE at the center. */
+    static int regionOf(float x, float y) {
+        if (x * x + y * y < CENTER_RADIUS * CENTER_RADIUS) {
+            return REGION_NONE;
+        }
+        if (Math.abs(y) >= Math.abs(x)) {
+            return y > 0 ? 0 : 2;
+        }
+        return x > 0 ? 1 : 3;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Pulses requested from the sink, whether it sent them or not. */
+    public long getRequested() {
+        return requested;
+    }
+}
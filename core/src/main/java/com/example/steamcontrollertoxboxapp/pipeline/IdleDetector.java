@@ -0,0 +1,134 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.ReportListener;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+import java.util.Arrays;
+
+/**
+ * Sits between the input source and the {@link ReportDispatcher} and stops
+ * unchanged reports from reaching the pipeline once the controller has been
+ * left alone for the idle timeout.
+ *
+ * Only the input part of a report ({@link SteamControllerParser#INPUT_REPORT_LENGTH}
+ * bytes) is compared, so IMU noise does not count as use. Until the timeout
+ * every report is passed on; after it, unchanged reports are dropped, so the
+ * dispatcher's worker parks, an output scheduler runs out of frames and
+ * sleeps, nothing is written to uinput, and the listener can relax the link.
+ * The first changed report wakes the listener and is then passed on in the
+ * same call, so waking costs no report period and no button edge. Entering
+ * idle cannot lose an edge either: the reports dropped are byte-for-byte
+ * copies of the last one passed on. Battery reports pass through untouched.
+ *
+ * onReport() runs on the source's callback thread, one report at a time.
+ */
+public class IdleDetector implements ReportListener {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    /** Called on the report thread when idle starts or ends; must not block. */
+    public interface Listener {
+        void onIdleChanged(boolean idle);
+    }
+
+    private final ReportListener downstream;
+    private final Listener listener;
+
+    // Report thread only
+    private final byte[] last = new byte[SteamControllerParser.INPUT_REPORT_LENGTH];
+    private int lastLength = -1;
+    private long lastChangeNanos = 0;
+
+    private volatile long timeoutNanos = DEFAULT_TIMEOUT_MILLIS * 1_000_000L;
+    private volatile boolean idle = false;
+    private volatile boolean resetPending = false;
+    private volatile long idlePeriods = 0;
+    private volatile long suppressedReports = 0;
+
+    public IdleDetector(ReportListener downstream, Listener listener) {
+        this.downstream = downstream;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onReport(byte[] data, long arrivalNanos) {
+        if (SteamControllerParser.isBatteryReport(data)) {
+            downstream.onReport(data, arrivalNanos);
+            return;
+        }
+        boolean reset = resetPending;
+        if (reset) {
+            resetPending = false;
+        }
+        if (reset || !sameAsLast(data)) {
+            remember(data);
+            lastChangeNanos = arrivalNanos;
+            if (idle) {
+                idle = false;
+                listener.onIdleChanged(false);
+            }
+            downstream.onReport(data, arrivalNanos);
+            return;
+        }
+        if (idle) {
+            suppressedReports++;
+            return;
+        }
+        long timeout = timeoutNanos;
+        if (timeout > 0 && arrivalNanos - lastChangeNanos >= timeout) {
+            idle = true;
+            idlePeriods++;
+            suppressedReports++;
+            listener.onIdleChanged(true);
+            return;
+        }
+        downstream.onReport(data, arrivalNanos);
+    }
+
+    /**
+     * Makes the next report count as changed, e.g. after the link dropped and the
+     * output was reset to neutral: that report must go through even if it matches
+     * the one before the drop.
+     */
+    public void reset() {
+        resetPending = true;
+    }
+
+    /** Time without changed input after which unchanged reports are dropped; 0 disables idling. */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Idle timeout must not be negative: " + timeoutMillis);
+        }
+        timeoutNanos = timeoutMillis * 1_000_000L;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutNanos / 1_000_000L;
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    public long getIdlePeriods() {
+        return idlePeriods;
+    }
+
+    public long getSuppressedReports() {
+        return suppressedReports;
+    }
+
+    private boolean sameAsLast(byte[] data) {
+        int length = Math.min(data.length, SteamControllerParser.INPUT_REPORT_LENGTH);
+        return length == lastLength && Arrays.equals(data, 0, length, last, 0, length);
+    }
+
+    private void remember(byte[] data) {
+        lastLength = Math.min(data.length, SteamControllerParser.INPUT_REPORT_LENGTH);
+        System.arraycopy(data, 0, last, 0, lastLength);
+    }
+
+    public String formatStats() {
+        return "idle=" + idle + " timeout=" + getTimeoutMillis() + "ms periods=" + idlePeriods
+                + " suppressed=" + suppressedReports;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.LatencyHistogram;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordered list of {@link PipelineStage}s run for every input report.
+ *
+ * When timing is enabled each stage's duration is added to preallocated
+ * per-stage counters (total, calls, max), so a timing dump shows which stage
+ * eats the per-report budget. Counters are plain longs written by the single
+ * thread processing a report at a time; readers on other threads may see
+ * slightly stale values, which is fine for diagnostics.
+ */
+public class InputPipeline {
+    private final PipelineStage[] stages;
+    private final long[] stageTotalNanos;
+    private final long[] stageCalls;
+    private final long[] stageMaxNanos;
+    private long droppedFrames = 0;
+    private volatile boolean timingEnabled = false;
+
+    public InputPipeline(List<PipelineStage> stages) {
+        this.stages = stages.toArray(new PipelineStage[0]);
+        this.stageTotalNanos = new long[this.stages.length];
+        this.stageCalls = new long[this.stages.length];
+        this.stageMaxNanos = new long[this.stages.length];
+    }
+
+    /**
+     * The standard decode, filter, map, emit chain, preceded by optional trace
+     * recording and by the battery stage taking battery reports out of the input
+     * stream, and followed by end-to-end latency recording, then by observers
+     * such as haptics or a state snapshot that must not delay the uinput write.
+     */
+    public static InputPipeline createDefault(TraceStage traceStage, BatteryStage batteryStage, OneEuroFilter filter,
+                                              ControllerMapper mapper, VirtualController virtualController,
+                                              LatencyHistogram latencyHistogram, PipelineStage... observers) {
+        List<PipelineStage> stages = new ArrayList<>(Arrays.asList(
+                traceStage,
+                batteryStage,
+                new DecodeStage(),
+                new FilterStage(filter),
+                new MapStage(mapper),
+                new EmitStage(virtualController),
+                new LatencyStage(latencyHistogram)));
+        stages.addAll(Arrays.asList(observers));
+        return new InputPipeline(stages);
+    }
+
+    /**
+     * Decode, filter, map and emit only, for replaying traces: no re-recording and
+     * no latency measurement, which would mix the trace clock with the wall clock.
+     * Traces are recorded in front of the battery stage, so replays need their
+     * own to keep battery reports from being decoded as input.
+     */
+    public static InputPipeline createReplay(OneEuroFilter filter, ControllerMapper mapper,
+                                             VirtualController virtualController) {
+        return new InputPipeline(Arrays.asList(
+                new BatteryStage(),
+                new DecodeStage(),
+                new FilterStage(filter),
+                new MapStage(mapper),
+                new EmitStage(virtualController)));
+    }
+
+    /**
+     * Runs the frame through all stages.
+     * @return false if a stage dropped the report.
+     */
+    public boolean process(PipelineFrame frame) {
+        if (!timingEnabled) {
+            for (PipelineStage stage : stages) {
+                if (!stage.process(frame)) {
+                    droppedFrames++;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < stages.length; i++) {
+            boolean keep = stages[i].process(frame);
+            long end = System.nanoTime();
+            long elapsed = end - start;
+            stageTotalNanos[i] += elapsed;
+            stageCalls[i]++;
+            if (elapsed > stageMaxNanos[i]) {
+                stageMaxNanos[i] = elapsed;
+            }
+            if (!keep) {
+                droppedFrames++;
+                return false;
+            }
+            start = end;
+        }
+        return true;
+    }
+
+    public void setTimingEnabled(boolean enabled) {
+        timingEnabled = enabled;
+    }
+
+    public boolean isTimingEnabled() {
+        return timingEnabled;
+    }
+
+    public void resetTimings() {
+        for (int i = 0; i < stages.length; i++) {
+            stageTotalNanos[i] = 0;
+            stageCalls[i] = 0;
+            stageMaxNanos[i] = 0;
+        }
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    public String getStageName(int index) {
+        return stages[index].getName();
+    }
+
+    public long getStageTotalNanos(int index) {
+        return stageTotalNanos[index];
+    }
+
+    public long getStageCalls(int index) {
+        return stageCalls[index];
+    }
+
+    public long getStageMaxNanos(int index) {
+        return stageMaxNanos[index];
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /** Human readable per-stage timings, one line per stage. Not for the hot path. */
+    public String formatTimings() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < stages.length; i++) {
+            long calls = stageCalls[i];
+            sb.append(stages[i].getName())
+                    .append(": calls=").append(calls)
+                    .append(" avg=").append(calls > 0 ? stageTotalNanos[i] / calls : 0).append("ns")
+                    .append(" max=").append(stageMaxNanos[i]).append("ns")
+                    .append('\n');
+        }
+        sb.append("dropped=").append(droppedFrames);
+        return sb.toString();
+    }
+}
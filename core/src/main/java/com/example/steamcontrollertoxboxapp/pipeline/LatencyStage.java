@@ -0,0 +1,29 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.LatencyHistogram;
+
+/**
+ * Records the time from report arrival to this point, so placed after the emit
+ * stage it measures BLE arrival to SYN_REPORT write. With an OutputScheduler in
+ * front of the uinput device it measures up to the hand-off to the scheduler
+ * only, which writes up to one output period (plus its interpolation delay)
+ * later; reports must label it accordingly.
+ */
+public class LatencyStage implements PipelineStage {
+    private final LatencyHistogram histogram;
+
+    public LatencyStage(LatencyHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    @Override
+    public String getName() {
+        return "latency";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        histogram.record(System.nanoTime() - frame.arrivalNanos);
+        return true;
+    }
+}
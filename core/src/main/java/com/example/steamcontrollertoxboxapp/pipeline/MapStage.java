@@ -0,0 +1,26 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+
+/**
+ * Applies the Steam-to-Xbox button mapping to the frame's output, which the
+ * emit stage then writes; does not write to the virtual controller itself.
+ */
+public class MapStage implements PipelineStage {
+    private final ControllerMapper mapper;
+
+    public MapStage(ControllerMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String getName() {
+        return "map";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        mapper.map(frame.output);
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+/**
+ * Mutable per-report state passed through the stages of an {@link InputPipeline}.
+ * Each processing thread owns one frame and reuses it for every report.
+ */
+public final class PipelineFrame {
+    /** Raw report as received from the controller. */
+    public byte[] rawData;
+    /** When the report arrived, from System.nanoTime() (or the trace clock on replay). */
+    public long arrivalNanos;
+    /** Decoded state, filled by the decode stage and refined by the following ones. */
+    public final SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+    /** Decoded state as it was before filtering and mapping. */
+    public final SteamControllerParser.XboxOutput decoded = new SteamControllerParser.XboxOutput();
+    /** Raw angular velocity, valid if hasGyro. */
+    public boolean hasGyro;
+    public short gyroX;
+    public short gyroY;
+    public short gyroZ;
+
+    public void set(byte[] rawData, long arrivalNanos) {
+        this.rawData = rawData;
+        this.arrivalNanos = arrivalNanos;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+/**
+ * One step of the input pipeline (decode, filter, map, emit, ...).
+ * Stages run in order on the thread processing the report and must not allocate.
+ */
+public interface PipelineStage {
+    /** Short name used in timing dumps. */
+    String getName();
+
+    /**
+     * Processes the frame in place.
+     * @return false to drop the report; later stages are skipped.
+     */
+    boolean process(PipelineFrame frame);
+}
@@ -0,0 +1,202 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.logging.EventJournal;
+import com.example.steamcontrollertoxboxapp.logging.JournalEvent;
+import com.example.steamcontrollertoxboxapp.logging.Log;
+
+import com.example.steamcontrollertoxboxapp.core.ReportListener;
+
+/**
+ * Routes raw input reports of one controller session through its {@link InputPipeline}.
+ *
+ * In QUEUED mode reports are handed through a bounded queue to the
+ * {@link SessionWorkerPool} worker this session is pinned to. In DIRECT mode the
+ * whole pipeline runs inline on the GATT callback thread, skipping the thread handoff.
+ * Direct mode times every inline dispatch; if the sink is slower than the inline
+ * budget for several reports in a row, the dispatcher falls back to QUEUED so a
+ * slow uinput write can never back up the Bluetooth stack.
+ */
+public class ReportDispatcher implements ReportListener {
+    private static final String TAG = "ReportDispatcher";
+
+    public enum Mode { DIRECT, QUEUED }
+
+    public interface Listener {
+        /** Called when the virtual controller rejects an update (e.g. it was destroyed). */
+        void onSinkFailed(Exception e);
+        /** Called after an automatic switch from DIRECT to QUEUED. */
+        void onFallbackToQueued(long lastDispatchNanos);
+    }
+
+    // GATT notifications for one connection arrive serially, so a few ms is
+    // already enough to start delaying the next connection event.
+    public static final long DEFAULT_INLINE_BUDGET_NANOS = 2_000_000L;
+    public static final int DEFAULT_MAX_SLOW_DISPATCHES = 8;
+    // Reports processed per worker pass before moving on to the next session
+    private static final int MAX_DRAIN_BATCH = 16;
+
+    private final InputPipeline pipeline;
+    private final SessionWorkerPool workerPool;
+    private final Listener listener;
+    private final long inlineBudgetNanos;
+    private final int maxSlowDispatches;
+
+    // Carries the arrival timestamp along with each report to the worker
+    private final ReportQueue queue = new ReportQueue(128);
+    // Reused by the GATT thread (DIRECT) and the worker (QUEUED)
+    private final PipelineFrame directFrame = new PipelineFrame();
+    private final PipelineFrame queuedFrame = new PipelineFrame();
+    // Serializes pipeline runs (stage state, virtual controller writes) around a mode switch; uncontended otherwise
+    private final Object sinkLock = new Object();
+
+    private volatile Mode mode;
+    private volatile boolean running = false;
+    private volatile SessionWorkerPool.Worker worker;
+
+    private int consecutiveSlowDispatches = 0;
+    private volatile long droppedReports = 0;
+    private volatile long fallbackCount = 0;
+    // Reports that arrived before the last resetOutput() are stale and skipped
+    private volatile long resetNanos = Long.MIN_VALUE;
+
+    public ReportDispatcher(InputPipeline pipeline, Mode mode, SessionWorkerPool workerPool, Listener listener) {
+        this(pipeline, mode, workerPool, listener, DEFAULT_INLINE_BUDGET_NANOS, DEFAULT_MAX_SLOW_DISPATCHES);
+    }
+
+    public ReportDispatcher(InputPipeline pipeline, Mode mode, SessionWorkerPool workerPool, Listener listener,
+                            long inlineBudgetNanos, int maxSlowDispatches) {
+        this.pipeline = pipeline;
+        this.mode = mode;
+        this.workerPool = workerPool;
+        this.listener = listener;
+        this.inlineBudgetNanos = inlineBudgetNanos;
+        this.maxSlowDispatches = maxSlowDispatches;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        consecutiveSlowDispatches = 0;
+        // Always pinned, so a fallback from DIRECT never has to touch the pool
+        worker = workerPool.assign(this);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            workerPool.release(this);
+            worker = null;
+        }
+        queue.clear(); // Drop any pending data
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getDroppedReports() {
+        return droppedReports;
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount;
+    }
+
+    /**
+     * Drops queued reports and runs reset with report dispatch held off, e.g. to
+     * write a neutral pad state when the link drops. A report already taken from
+     * the queue but not yet dispatched is skipped rather than applied after it.
+     */
+    public void resetOutput(Runnable reset) {
+        synchronized (sinkLock) {
+            resetNanos = System.nanoTime();
+            queue.clear();
+            reset.run();
+        }
+    }
+
+    /**
+     * Switches between inline and queued dispatch. Safe to call while running;
+     * reports still sitting in the queue when switching to DIRECT are discarded.
+     */
+    public synchronized void setMode(Mode newMode) {
+        if (mode == newMode) return;
+        consecutiveSlowDispatches = 0;
+        mode = newMode;
+        if (newMode == Mode.DIRECT) {
+            queue.clear();
+        }
+    }
+
+    @Override
+    public void onReport(byte[] data, long arrivalNanos) {
+        if (!running) return;
+        if (mode == Mode.DIRECT) {
+            dispatchInline(data, arrivalNanos);
+        } else if (queue.offer(data, arrivalNanos)) {
+            SessionWorkerPool.Worker w = worker;
+            if (w != null) {
+                w.signal();
+            }
+        } else {
+            droppedReports++;
+        }
+    }
+
+    /**
+     * Called by the pinned pool worker. Processes a bounded batch of queued
+     * reports so one busy session cannot starve the others on the same worker.
+     * @return true if at least one report was processed.
+     */
+    boolean drainQueue() {
+        int processed = 0;
+        while (processed < MAX_DRAIN_BATCH && running && mode == Mode.QUEUED
+                && queue.poll(queuedFrame)) {
+            dispatch(queuedFrame);
+            processed++;
+        }
+        return processed > 0;
+    }
+
+    private void dispatchInline(byte[] data, long arrivalNanos) {
+        long start = System.nanoTime();
+        directFrame.set(data, arrivalNanos);
+        dispatch(directFrame);
+        long elapsed = System.nanoTime() - start;
+
+        if (elapsed <= inlineBudgetNanos) {
+            consecutiveSlowDispatches = 0;
+        } else if (++consecutiveSlowDispatches >= maxSlowDispatches) {
+            fallBackToQueued(elapsed);
+        }
+    }
+
+    private void fallBackToQueued(long lastDispatchNanos) {
+        EventJournal.record(JournalEvent.INLINE_BUDGET_FALLBACK, maxSlowDispatches,
+                (int) Math.min(Integer.MAX_VALUE, lastDispatchNanos / 1000));
+        fallbackCount++;
+        setMode(Mode.QUEUED);
+        if (listener != null) {
+            listener.onFallbackToQueued(lastDispatchNanos);
+        }
+    }
+
+    private void dispatch(PipelineFrame frame) {
+        try {
+            synchronized (sinkLock) {
+                if (frame.arrivalNanos < resetNanos) {
+                    return;
+                }
+                pipeline.process(frame);
+            }
+        } catch (IllegalStateException ise) {
+            Log.w(TAG, "Failed to update virtual controller: " + ise.getMessage());
+            running = false;
+            if (listener != null) {
+                listener.onSinkFailed(ise);
+            }
+        } catch (Exception e) {
+            EventJournal.record(JournalEvent.DISPATCH_ERROR, e, 0);
+        }
+    }
+}
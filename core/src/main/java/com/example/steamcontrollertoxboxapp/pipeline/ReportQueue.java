@@ -0,0 +1,89 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring that hands raw reports and their arrival timestamps from the
+ * thread receiving them to the thread running the pipeline, without allocating.
+ *
+ * Single producer (the GATT callback thread of one connection). Consumers claim
+ * slots with a CAS, so {@link #clear()} may be called from another thread while
+ * the worker is polling.
+ *
+ * Whoever claims a slot clears it, so the queue does not keep consumed reports
+ * alive. The producer only fills a slot once it is cleared: between a claim and
+ * the clear the queue reads as full for that slot, which is the same as a
+ * consumer that has not caught up yet.
+ */
+public class ReportQueue {
+    private final AtomicReferenceArray<byte[]> reports;
+    private final long[] arrivalNanos;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot to consume
+    private final AtomicLong tail = new AtomicLong(); // Next slot to fill
+
+    /** @param capacity rounded up to a power of two. */
+    public ReportQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        reports = new AtomicReferenceArray<>(size);
+        arrivalNanos = new long[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return reports.length();
+    }
+
+    /** Producer side. @return false if the queue is full and the report was not queued. */
+    public boolean offer(byte[] data, long arrival) {
+        long t = tail.get();
+        int slot = (int) (t & mask);
+        if (t - head.get() >= arrivalNanos.length || reports.get(slot) != null) {
+            return false;
+        }
+        arrivalNanos[slot] = arrival;
+        reports.lazySet(slot, data);
+        tail.lazySet(t + 1); // Publishes the slot contents to the consumer
+        return true;
+    }
+
+    /** Consumer side: moves the oldest report into frame. @return false if the queue was empty. */
+    public boolean poll(PipelineFrame frame) {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                return false;
+            }
+            int slot = (int) (h & mask);
+            byte[] data = reports.get(slot);
+            long arrival = arrivalNanos[slot];
+            if (head.compareAndSet(h, h + 1)) {
+                reports.lazySet(slot, null); // Only now may the producer reuse the slot
+                frame.set(data, arrival);
+                return true;
+            }
+        }
+    }
+
+    /** Drops everything queued so far. */
+    public void clear() {
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (h >= t) {
+                return;
+            }
+            if (head.compareAndSet(h, t)) {
+                for (long i = h; i < t; i++) {
+                    reports.lazySet((int) (i & mask), null);
+                }
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+}
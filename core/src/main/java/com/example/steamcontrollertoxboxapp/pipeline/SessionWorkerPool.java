@@ -0,0 +1,137 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.logging.EventJournal;
+import com.example.steamcontrollertoxboxapp.logging.JournalEvent;
+import com.example.steamcontrollertoxboxapp.logging.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Small fixed pool of processing threads shared by all controller sessions.
+ *
+ * Each queued {@link ReportDispatcher} is pinned to one worker (the least loaded
+ * at assignment time) so reports of a session are always processed in order by
+ * the same thread. A worker round-robins over its dispatchers and parks when none
+ * of them has pending reports; producers wake it with {@link Worker#signal()}.
+ */
+public class SessionWorkerPool {
+    private static final String TAG = "SessionWorkerPool";
+
+    public static final int DEFAULT_WORKER_COUNT = 2;
+
+    private final Worker[] workers;
+
+    public SessionWorkerPool(int workerCount) {
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /** Pins a dispatcher to the least loaded worker and returns that worker. */
+    public synchronized Worker assign(ReportDispatcher dispatcher) {
+        Worker target = workers[0];
+        for (Worker worker : workers) {
+            if (worker.dispatchers.length < target.dispatchers.length) {
+                target = worker;
+            }
+        }
+        target.add(dispatcher);
+        return target;
+    }
+
+    public synchronized void release(ReportDispatcher dispatcher) {
+        for (Worker worker : workers) {
+            worker.remove(dispatcher);
+        }
+    }
+
+    public synchronized void shutdown() {
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+    }
+
+    public static final class Worker implements Runnable {
+        private final int index;
+        private final String name;
+        // Copy-on-write so the worker loop iterates without locking or allocating
+        private volatile ReportDispatcher[] dispatchers = new ReportDispatcher[0];
+        private volatile boolean running = false;
+        private volatile Thread thread;
+
+        Worker(int index) {
+            this.index = index;
+            this.name = "BleDataProcessor-" + index;
+        }
+
+        /** Wakes the worker after a report was queued. Cheap if it is already running. */
+        public void signal() {
+            Thread t = thread;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+
+        private void add(ReportDispatcher dispatcher) {
+            ReportDispatcher[] current = dispatchers;
+            ReportDispatcher[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = dispatcher;
+            dispatchers = updated;
+            if (thread == null) {
+                running = true;
+                thread = new Thread(this, name);
+                thread.start();
+            }
+        }
+
+        private void remove(ReportDispatcher dispatcher) {
+            ReportDispatcher[] current = dispatchers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == dispatcher) {
+                    ReportDispatcher[] updated = new ReportDispatcher[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    dispatchers = updated;
+                    return;
+                }
+            }
+        }
+
+        private void stop() {
+            running = false;
+            dispatchers = new ReportDispatcher[0];
+            if (thread != null) {
+                thread.interrupt();
+                thread = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            Log.i(TAG, "Worker " + name + " started.");
+            while (running) {
+                boolean didWork = false;
+                ReportDispatcher[] current = dispatchers;
+                for (ReportDispatcher dispatcher : current) {
+                    try {
+                        didWork |= dispatcher.drainQueue();
+                    } catch (Exception e) {
+                        // Catch unexpected errors so one session cannot kill the others
+                        EventJournal.record(JournalEvent.WORKER_ERROR, e, index);
+                    }
+                }
+                if (!didWork) {
+                    // A signal() that raced with the scan above leaves a permit, so this returns at once
+                    LockSupport.park(this);
+                }
+            }
+            Log.i(TAG, "Worker " + name + " finished.");
+        }
+    }
+}
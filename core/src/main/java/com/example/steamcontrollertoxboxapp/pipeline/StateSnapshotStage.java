@@ -0,0 +1,108 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Publishes the latest frame for observers such as a live visualizer: decoded
+ * and output state, gyro and the latency added up to this point. Placed last
+ * in the pipeline.
+ *
+ * The slot is a seqlock (StampedLock in optimistic mode): the pipeline thread
+ * writes without ever waiting, readers copy into their own {@link Snapshot}
+ * and retry if a write overlapped. Neither side allocates, and readers never
+ * hold up the pipeline, so it can be polled once per display frame. Publishing
+ * is off until {@link #setEnabled} turns it on.
+ */
+public class StateSnapshotStage implements PipelineStage {
+
+    /** A consistent copy of one published frame. */
+    public static final class Snapshot {
+        /** Sticks, triggers and buttons as decoded, before filtering and mapping. */
+        public final SteamControllerParser.XboxOutput decoded = new SteamControllerParser.XboxOutput();
+        /** State written to the virtual controller. */
+        public final SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+        public boolean hasGyro;
+        public short gyroX;
+        public short gyroY;
+        public short gyroZ;
+        /** Report arrival to the end of the pipeline. */
+        public long latencyNanos;
+        /** Increases with every published frame, 0 if nothing was published yet. */
+        public long sequence;
+
+        public void copyFrom(Snapshot other) {
+            decoded.copyFrom(other.decoded);
+            output.copyFrom(other.output);
+            hasGyro = other.hasGyro;
+            gyroX = other.gyroX;
+            gyroY = other.gyroY;
+            gyroZ = other.gyroZ;
+            latencyNanos = other.latencyNanos;
+            sequence = other.sequence;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final Snapshot published = new Snapshot();
+    private volatile boolean enabled = false;
+    private long sequence = 0;
+
+    @Override
+    public String getName() {
+        return "snapshot";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        if (!enabled) {
+            return true;
+        }
+        long latencyNanos = System.nanoTime() - frame.arrivalNanos;
+        // Only ever contended by another writer, never by readers; skip rather than wait
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            return true;
+        }
+        try {
+            published.decoded.copyFrom(frame.decoded);
+            published.output.copyFrom(frame.output);
+            published.hasGyro = frame.hasGyro;
+            published.gyroX = frame.gyroX;
+            published.gyroY = frame.gyroY;
+            published.gyroZ = frame.gyroZ;
+            published.latencyNanos = latencyNanos;
+            published.sequence = ++sequence;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    /**
+     * Copies the latest published frame into the caller's snapshot.
+     * @return the frame's sequence number, to tell whether anything changed since the last read.
+     */
+    public long read(Snapshot into) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                into.copyFrom(published);
+                if (lock.validate(stamp)) {
+                    return into.sequence;
+                }
+            }
+            Thread.onSpinWait(); // A write is in progress, it takes well under a microsecond
+        }
+    }
+
+    /** Starts or stops publishing; off while nobody is watching. */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
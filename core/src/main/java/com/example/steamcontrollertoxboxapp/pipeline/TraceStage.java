@@ -0,0 +1,34 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.trace.TraceRecorder;
+
+/**
+ * Appends the raw report and its arrival time to a trace while recording is on.
+ * Sits in front of the decode stage so reports the parser rejects are captured too.
+ */
+public class TraceStage implements PipelineStage {
+    private volatile TraceRecorder recorder;
+
+    public TraceRecorder getRecorder() {
+        return recorder;
+    }
+
+    /** Starts (non-null) or stops (null) recording; takes effect with the next report. */
+    public void setRecorder(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public String getName() {
+        return "trace";
+    }
+
+    @Override
+    public boolean process(PipelineFrame frame) {
+        TraceRecorder r = recorder;
+        if (r != null) {
+            r.record(frame.rawData, frame.arrivalNanos);
+        }
+        return true;
+    }
+}
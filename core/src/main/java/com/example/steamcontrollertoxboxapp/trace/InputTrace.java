@@ -0,0 +1,93 @@
+package com.example.steamcontrollertoxboxapp.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A recorded trace loaded fully into memory, so replaying it never touches the
+ * disk or allocates. Reports are kept in recording order with their original
+ * arrival timestamps.
+ */
+public final class InputTrace {
+    private final long[] arrivalNanos;
+    private final byte[][] reports;
+
+    InputTrace(long[] arrivalNanos, byte[][] reports) {
+        this.arrivalNanos = arrivalNanos;
+        this.reports = reports;
+    }
+
+    /** Loads one or more segments; pass the files of one recording in any order. */
+    public static InputTrace load(File... segments) throws IOException {
+        File[] ordered = segments.clone();
+        // Segment names carry creation millis and a sequence number, so name order is recording order
+        Arrays.sort(ordered, Comparator.comparing(File::getName));
+        List<Long> arrivals = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        for (File segment : ordered) {
+            readSegment(segment, arrivals, data);
+        }
+        long[] arrivalArray = new long[arrivals.size()];
+        for (int i = 0; i < arrivalArray.length; i++) {
+            arrivalArray[i] = arrivals.get(i);
+        }
+        return new InputTrace(arrivalArray, data.toArray(new byte[0][]));
+    }
+
+    /** Loads every segment recorded under name in directory, e.g. one controller's traces. */
+    public static InputTrace load(File directory, String name) throws IOException {
+        File[] segments = directory.listFiles((dir, fileName) ->
+                fileName.startsWith(name + "-") && fileName.endsWith(TraceFormat.FILE_EXTENSION));
+        if (segments == null || segments.length == 0) {
+            throw new IOException("No traces named " + name + " in " + directory);
+        }
+        return load(segments);
+    }
+
+    private static void readSegment(File file, List<Long> arrivals, List<byte[]> data) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(TraceFormat.BYTE_ORDER);
+            TraceFormat.readHeader(buffer);
+            while (buffer.remaining() >= TraceFormat.RECORD_HEADER_SIZE) {
+                int length = buffer.getShort() & 0xFFFF;
+                if (length == 0) {
+                    break; // End of the written part of a preallocated segment
+                }
+                long arrival = buffer.getLong();
+                if (buffer.remaining() < length) {
+                    throw new TraceFormat.TraceFormatException("Truncated record in " + file);
+                }
+                byte[] report = new byte[length];
+                buffer.get(report);
+                arrivals.add(arrival);
+                data.add(report);
+            }
+        }
+    }
+
+    public int size() {
+        return reports.length;
+    }
+
+    public long getArrivalNanos(int index) {
+        return arrivalNanos[index];
+    }
+
+    public byte[] getReport(int index) {
+        return reports[index];
+    }
+
+    /** Time between the first and the last report. */
+    public long getDurationNanos() {
+        return reports.length == 0 ? 0 : arrivalNanos[reports.length - 1] - arrivalNanos[0];
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.steamcontrollertoxboxapp.trace;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary input trace files written by {@link TraceRecorder}.
+ *
+ * <pre>
+ * header:  int magic 'SCTR' | short version | short header size | long wall clock millis at creation
+ * record:  ushort report length | long arrival nanos | report bytes
+ * </pre>
+ * All values are little-endian. Segments are preallocated, so a record length
+ * of 0 (the zero-filled tail) marks the end of the data.
+ */
+public final class TraceFormat {
+    public static final int MAGIC = 0x52544353; // "SCTR" read as little-endian
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_HEADER_SIZE = 2 + 8;
+    public static final int MAX_REPORT_LENGTH = 0xFFFF;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final String FILE_EXTENSION = ".sctr";
+
+    private TraceFormat() {}
+
+    static void writeHeader(ByteBuffer buffer, long createdMillis) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) HEADER_SIZE);
+        buffer.putLong(createdMillis);
+    }
+
+    /** Validates the header and leaves the buffer positioned at the first record. */
+    static void readHeader(ByteBuffer buffer) throws TraceFormatException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new TraceFormatException("Not an input trace");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new TraceFormatException("Unsupported trace version " + version);
+        }
+        int headerSize = buffer.getShort() & 0xFFFF;
+        buffer.position(headerSize);
+    }
+
+    public static class TraceFormatException extends java.io.IOException {
+        private static final long serialVersionUID = 1L;
+
+        public TraceFormatException(String message) {
+            super(message);
+        }
+    }
+}
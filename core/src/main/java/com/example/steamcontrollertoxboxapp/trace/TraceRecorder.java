@@ -0,0 +1,287 @@
+package com.example.steamcontrollertoxboxapp.trace;
+
+import com.example.steamcontrollertoxboxapp.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends raw input reports with their arrival timestamps to memory-mapped trace
+ * segments (see {@link TraceFormat} for the layout).
+ *
+ * record() only copies into the mapped buffer, so it never allocates, never
+ * makes a system call and never blocks. A background thread keeps the next
+ * segment mapped ahead of time; when the active one is full record() swaps
+ * them and queues the full one, and the background thread flushes the queued
+ * segments in order and maps a new spare. If the spare is not ready yet, or
+ * {@link #RETIRED_CAPACITY} full segments are still waiting to be flushed, the
+ * report is dropped and counted rather than waiting, so a written segment is
+ * never lost and every gap shows up in the dropped count. At most maxSegments files per recorder name are kept on disk, the
+ * oldest are deleted first.
+ *
+ * Single writer: one recorder per controller session, fed by whichever thread
+ * runs that session's pipeline.
+ */
+public class TraceRecorder {
+    private static final String TAG = "TraceRecorder";
+
+    public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    // Retry interval when a spare segment could not be mapped (e.g. disk full)
+    private static final long MAP_RETRY_NANOS = 1_000_000_000L;
+    static final int RETIRED_CAPACITY = 4;
+
+    private final File directory;
+    private final String name;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    // Only touched by the writer thread
+    private Segment active;
+    private long recordedReports = 0;
+    // Handed between the writer and the rotator thread
+    private volatile Segment spare;
+    // Full segments waiting to be flushed: the writer fills at retiredTail, the rotator takes at retiredHead
+    private final Segment[] retiredSegments = new Segment[RETIRED_CAPACITY];
+    private volatile long retiredHead = 0;
+    private volatile long retiredTail = 0;
+    private volatile boolean closed = false;
+    private volatile long droppedReports = 0;
+
+    // Only touched by the rotator thread (and open() before it starts)
+    private final ArrayDeque<File> finishedSegments = new ArrayDeque<>();
+    private int nextSequence = 0;
+    private Thread rotatorThread;
+
+    public TraceRecorder(File directory, String name) {
+        this(directory, name, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * @param name file name prefix, e.g. the sanitized controller address.
+     * @param maxSegments upper bound on files kept for this name, including the active and spare segment.
+     */
+    public TraceRecorder(File directory, String name, int segmentBytes, int maxSegments) {
+        if (segmentBytes < TraceFormat.HEADER_SIZE + TraceFormat.RECORD_HEADER_SIZE + TraceFormat.MAX_REPORT_LENGTH) {
+            throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        }
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("Need at least an active and a spare segment");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+    }
+
+    /** Maps the first two segments and starts the rotator thread. Call before record(). */
+    public void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create trace directory " + directory);
+        }
+        // Traces left by earlier recordings count towards the bound
+        File[] existing = directory.listFiles((dir, fileName) ->
+                fileName.startsWith(name + "-") && fileName.endsWith(TraceFormat.FILE_EXTENSION));
+        if (existing != null) {
+            Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+            finishedSegments.addAll(Arrays.asList(existing));
+        }
+        // The active and the spare segment take two of the slots
+        pruneFinishedSegments(maxSegments - 2);
+
+        active = mapSegment();
+        spare = mapSegment();
+        rotatorThread = new Thread(this::runRotator, "TraceRotator-" + name);
+        rotatorThread.setDaemon(true);
+        rotatorThread.start();
+        Log.i(TAG, "Recording trace to " + active.file);
+    }
+
+    /**
+     * Appends one report. Allocation-free and non-blocking.
+     * @return false if the report was dropped (closed, or no spare segment ready).
+     */
+    public boolean record(byte[] data, long arrivalNanos) {
+        Segment segment = active;
+        if (closed || segment == null || data == null || data.length == 0
+                || data.length > TraceFormat.MAX_REPORT_LENGTH) {
+            droppedReports++;
+            return false;
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        // Leave room for the zero length terminator
+        if (buffer.remaining() < TraceFormat.RECORD_HEADER_SIZE + data.length + 2) {
+            Segment next = spare;
+            long tail = retiredTail;
+            if (next == null || tail - retiredHead == RETIRED_CAPACITY) {
+                droppedReports++;
+                return false;
+            }
+            spare = null;
+            active = next;
+            retiredSegments[(int) (tail % RETIRED_CAPACITY)] = segment;
+            retiredTail = tail + 1; // Publishes the slot
+            LockSupport.unpark(rotatorThread);
+            buffer = next.buffer;
+        }
+        buffer.putShort((short) data.length);
+        buffer.putLong(arrivalNanos);
+        buffer.put(data);
+        recordedReports++;
+        return true;
+    }
+
+    /**
+     * Stops recording and flushes what was written. The active segment keeps its
+     * preallocated size; readers stop at the zero length terminator. If the rotator
+     * thread does not stop within a second, the segments are left unflushed.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        Thread rotator = rotatorThread;
+        if (rotator != null) {
+            LockSupport.unpark(rotator);
+            try {
+                rotator.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (rotator.isAlive()) {
+                // Still mapping or flushing a segment; finishing here would race it on
+                // spare and on deleting old files, so leave the segments as they are
+                Log.w(TAG, "Trace " + name + " rotator did not stop, skipping cleanup: recorded="
+                        + recordedReports + " dropped=" + droppedReports);
+                return;
+            }
+        }
+        // The writer may still be inside record(); the mapping stays valid after the
+        // channel is closed, so a late write is harmless and simply not flushed.
+        finishSegment(active, maxSegments);
+        Segment unused = spare;
+        spare = null;
+        if (unused != null) {
+            closeQuietly(unused);
+            if (!unused.file.delete()) {
+                Log.w(TAG, "Could not delete unused segment " + unused.file);
+            }
+        }
+        Log.i(TAG, "Trace " + name + " closed: recorded=" + recordedReports + " dropped=" + droppedReports);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRecordedReports() {
+        return recordedReports;
+    }
+
+    public long getDroppedReports() {
+        return droppedReports;
+    }
+
+    // --- Rotator thread ---
+
+    private void runRotator() {
+        while (!closed) {
+            flushRetired();
+            if (spare == null) {
+                try {
+                    spare = mapSegment();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to map next trace segment, reports will be dropped", e);
+                    LockSupport.parkNanos(MAP_RETRY_NANOS);
+                }
+                continue;
+            }
+            if (retiredHead == retiredTail) {
+                LockSupport.park(this);
+            }
+        }
+        // Segments retired right before close() still need flushing
+        flushRetired();
+    }
+
+    /** Flushes and closes the retired segments, oldest first. */
+    private void flushRetired() {
+        long head = retiredHead;
+        while (head != retiredTail) {
+            int slot = (int) (head % RETIRED_CAPACITY);
+            Segment full = retiredSegments[slot];
+            retiredSegments[slot] = null;
+            retiredHead = ++head; // Frees the slot
+            finishSegment(full, maxSegments - 2);
+        }
+    }
+
+    private Segment mapSegment() throws IOException {
+        File file = new File(directory, String.format(Locale.US, "%s-%d-%04d%s",
+                name, System.currentTimeMillis(), nextSequence++, TraceFormat.FILE_EXTENSION));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            buffer.order(TraceFormat.BYTE_ORDER);
+            TraceFormat.writeHeader(buffer, System.currentTimeMillis());
+            return new Segment(file, raf, buffer);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /** Flushes and closes segment, then deletes the oldest files beyond keepFinished. */
+    private void finishSegment(Segment segment, int keepFinished) {
+        if (segment == null) return;
+        try {
+            segment.buffer.force();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to flush trace segment " + segment.file, e);
+        }
+        closeQuietly(segment);
+        finishedSegments.addLast(segment.file);
+        pruneFinishedSegments(keepFinished);
+    }
+
+    private void pruneFinishedSegments(int keep) {
+        while (finishedSegments.size() > keep) {
+            File oldest = finishedSegments.removeFirst();
+            if (!oldest.delete()) {
+                Log.w(TAG, "Could not delete old trace segment " + oldest);
+            }
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.raf.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close trace segment " + segment.file, e);
+        }
+    }
+
+    private static final class Segment {
+        final File file;
+        final RandomAccessFile raf;
+        final MappedByteBuffer buffer;
+
+        Segment(File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+            this.file = file;
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.steamcontrollertoxboxapp.trace;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+import com.example.steamcontrollertoxboxapp.pipeline.InputPipeline;
+import com.example.steamcontrollertoxboxapp.pipeline.PipelineFrame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a recorded {@link InputTrace} through an {@link InputPipeline} on the
+ * calling thread, either paced like the recording or as fast as possible.
+ *
+ * Frames always carry the recorded arrival timestamps, never the replay clock,
+ * so the time-dependent stages (the axis filter) see exactly the same input in
+ * both modes and two replays of a trace into fresh pipelines write identical
+ * state sequences. For that reason the target controller should be the bare
+ * device or a recording stand-in, not an OutputScheduler, whose output depends
+ * on the wall clock.
+ */
+public class TraceReplayer {
+    public enum Speed { RECORDED, MAX }
+
+    // Below this the pacing loop spins instead of parking, park overshoots by ~50-100 us
+    private static final long SPIN_THRESHOLD_NANOS = 200_000L;
+
+    private final InputPipeline pipeline;
+    private final PipelineFrame frame = new PipelineFrame();
+
+    public TraceReplayer(InputPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /** A replayer with freshly initialized mapper and filter state writing to virtualController. */
+    public static TraceReplayer create(VirtualController virtualController, FilterProfile filterProfile) {
+        ControllerMapper mapper = new ControllerMapper(virtualController);
+        return new TraceReplayer(InputPipeline.createReplay(new OneEuroFilter(filterProfile), mapper, virtualController));
+    }
+
+    public InputPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Replays the whole trace. Stops early, keeping the interrupt flag, if the
+     * calling thread is interrupted.
+     */
+    public Result replay(InputTrace trace, Speed speed) {
+        int count = trace.size();
+        long replayStart = System.nanoTime();
+        long traceStart = count > 0 ? trace.getArrivalNanos(0) : 0;
+        int processed = 0;
+        long rejected = 0;
+
+        for (int i = 0; i < count; i++) {
+            long arrival = trace.getArrivalNanos(i);
+            if (speed == Speed.RECORDED && !waitUntil(replayStart + (arrival - traceStart))) {
+                break;
+            }
+            frame.set(trace.getReport(i), arrival);
+            if (!pipeline.process(frame)) {
+                rejected++;
+            }
+            processed++;
+        }
+        return new Result(processed, rejected, System.nanoTime() - replayStart, trace.getDurationNanos());
+    }
+
+    /** @return false if interrupted while waiting. */
+    private static boolean waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS / 2);
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    public static final class Result {
+        public final int reports;
+        /** Reports dropped by a pipeline stage, e.g. too short to decode. */
+        public final long rejectedReports;
+        public final long elapsedNanos;
+        public final long traceDurationNanos;
+
+        Result(int reports, long rejectedReports, long elapsedNanos, long traceDurationNanos) {
+            this.reports = reports;
+            this.rejectedReports = rejectedReports;
+            this.elapsedNanos = elapsedNanos;
+            this.traceDurationNanos = traceDurationNanos;
+        }
+
+        public double getReportsPerSecond() {
+            return elapsedNanos > 0 ? reports * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "reports=" + reports
+                    + " rejected=" + rejectedReports
+                    + " elapsed=" + elapsedNanos / 1000 + "us"
+                    + " recorded=" + traceDurationNanos / 1000 + "us"
+                    + " rate=" + (long) getReportsPerSecond() + "/s";
+        }
+    }
+}
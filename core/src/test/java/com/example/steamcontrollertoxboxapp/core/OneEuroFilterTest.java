@@ -0,0 +1,75 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the lag the adaptive filter adds to a constant-speed stick sweep and
+ * how much rest jitter it removes. Runs on the host, no device needed.
+ */
+public class OneEuroFilterTest {
+    private static final long REPORT_PERIOD_NANOS = 4_000_000L; // 250 Hz BLE reports
+
+    /** Steady-state lag in milliseconds for a left stick sweep at the given speed (full range = 2.0). */
+    private static double measureLagMillis(FilterProfile profile, float unitsPerSecond) {
+        OneEuroFilter filter = new OneEuroFilter(profile);
+        SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+        float step = unitsPerSecond * REPORT_PERIOD_NANOS / 1_000_000_000f;
+        int samples = (int) (2f / step);
+        float input = -1f;
+        for (int i = 0; i < samples; i++) {
+            input = -1f + i * step;
+            output.leftStickX = input;
+            filter.filter(output, i * REPORT_PERIOD_NANOS);
+        }
+        return (input - output.leftStickX) / unitsPerSecond * 1000.0;
+    }
+
+    @Test
+    public void lagShrinksAsMotionGetsFaster() {
+        double slow = measureLagMillis(FilterProfile.DEFAULT, 0.5f);   // Fine aiming
+        double medium = measureLagMillis(FilterProfile.DEFAULT, 4f);   // Normal camera turn
+        double fast = measureLagMillis(FilterProfile.DEFAULT, 16f);    // Flick
+
+        assertTrue("filter must lag behind a moving input", slow > 0);
+        assertTrue("medium lag " + medium + " ms vs slow " + slow + " ms", medium < slow);
+        assertTrue("fast lag " + fast + " ms vs medium " + medium + " ms", fast < medium);
+        // A flick should not be delayed by more than one report period
+        assertTrue("fast lag " + fast + " ms", fast < REPORT_PERIOD_NANOS / 1_000_000.0);
+    }
+
+    @Test
+    public void responsiveProfileLagsLessThanSmooth() {
+        double smooth = measureLagMillis(FilterProfile.SMOOTH, 4f);
+        double responsive = measureLagMillis(FilterProfile.RESPONSIVE, 4f);
+        assertTrue("responsive lag " + responsive + " ms vs smooth " + smooth + " ms", responsive < smooth);
+    }
+
+    @Test
+    public void restJitterIsAttenuated() {
+        OneEuroFilter filter = new OneEuroFilter(FilterProfile.DEFAULT);
+        SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+        float jitter = 0.01f; // About 330 raw units of sensor noise
+        float maxOutput = 0f;
+        for (int i = 0; i < 500; i++) {
+            output.rightStickY = (i % 2 == 0) ? jitter : -jitter;
+            filter.filter(output, i * REPORT_PERIOD_NANOS);
+            if (i > 50) {
+                maxOutput = Math.max(maxOutput, Math.abs(output.rightStickY));
+            }
+        }
+        assertTrue("residual jitter " + maxOutput, maxOutput < jitter / 4);
+    }
+
+    @Test
+    public void offProfilePassesThrough() {
+        OneEuroFilter filter = new OneEuroFilter(FilterProfile.OFF);
+        SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+        for (int i = 0; i < 10; i++) {
+            output.leftTrigger = i / 10f;
+            filter.filter(output, i * REPORT_PERIOD_NANOS);
+            assertEquals(i / 10f, output.leftTrigger, 0f);
+        }
+    }
+}
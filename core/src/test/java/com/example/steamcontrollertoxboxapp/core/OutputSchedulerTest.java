@@ -0,0 +1,119 @@
+package com.example.steamcontrollertoxboxapp.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link OutputScheduler} writes every button press and release to
+ * the wrapped controller when they follow each other within a period, and that
+ * a full edge queue merges edges instead of blocking the producer.
+ */
+public class OutputSchedulerTest {
+    private static final int PAIRS = 1000;
+
+    /** Counts presses and releases of A as written by the timer thread. */
+    static class EdgeCountingController implements VirtualController {
+        volatile int presses = 0;
+        volatile int releases = 0;
+        private boolean pressed = false;
+
+        @Override
+        public boolean initialize() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public void update(SteamControllerParser.XboxOutput state) {
+            if (state.buttonA != pressed) {
+                pressed = state.buttonA;
+                if (pressed) presses++; else releases++;
+            }
+        }
+
+        /** Waits up to two seconds for the expected number of pairs. */
+        boolean awaitPairs(int pairs) throws InterruptedException {
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (presses < pairs || releases < pairs) {
+                if (System.nanoTime() > deadline) return false;
+                Thread.sleep(1);
+            }
+            return true;
+        }
+    }
+
+    private static void sendPairs(OutputScheduler scheduler, long gapNanos) {
+        SteamControllerParser.XboxOutput state = new SteamControllerParser.XboxOutput();
+        for (int i = 0; i < PAIRS; i++) {
+            state.buttonA = true;
+            scheduler.update(state);
+            state.buttonA = false;
+            scheduler.update(state); // Released before the timer thread got to run
+            if (gapNanos > 0) {
+                LockSupport.parkNanos(gapNanos);
+            }
+        }
+    }
+
+    @Test
+    public void pairsWithinOnePeriodAllReachTheController() throws InterruptedException {
+        EdgeCountingController controller = new EdgeCountingController();
+        OutputScheduler scheduler = new OutputScheduler(controller, OutputScheduler.DEFAULT_RATE_HZ);
+        assertTrue(scheduler.initialize());
+        try {
+            sendPairs(scheduler, 2_000_000L); // One pair per 500 Hz period
+            assertTrue("presses=" + controller.presses + " releases=" + controller.releases,
+                    controller.awaitPairs(PAIRS));
+            assertEquals(PAIRS, controller.presses);
+            assertEquals(PAIRS, controller.releases);
+        } finally {
+            scheduler.destroy();
+        }
+    }
+
+    @Test
+    public void fullQueueMergesEdgesInsteadOfBlockingUpdate() throws InterruptedException {
+        CountDownLatch stuck = new CountDownLatch(1);
+        EdgeCountingController controller = new EdgeCountingController() {
+            @Override
+            public void update(SteamControllerParser.XboxOutput state) {
+                try {
+                    stuck.await(); // The timer thread hangs in the first write
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.update(state);
+            }
+        };
+        OutputScheduler scheduler = new OutputScheduler(controller, OutputScheduler.DEFAULT_RATE_HZ);
+        assertTrue(scheduler.initialize());
+        try {
+            Thread producer = new Thread(() -> sendPairs(scheduler, 0), "Producer");
+            producer.start();
+            producer.join(2000);
+            assertFalse("update() blocked on the full edge queue", producer.isAlive());
+
+            stuck.countDown();
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (scheduler.getButtonEdges() + scheduler.getMergedEdges() < 2 * PAIRS) {
+                assertTrue("written=" + scheduler.getButtonEdges() + " merged=" + scheduler.getMergedEdges(),
+                        System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+            assertEquals(2 * PAIRS, scheduler.getButtonEdges() + scheduler.getMergedEdges());
+            assertTrue(scheduler.getMergedEdges() > 0);
+            // The newest edge always survives, so the pad ends up released
+            assertEquals(controller.presses, controller.releases);
+        } finally {
+            stuck.countDown();
+            scheduler.destroy();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.steamcontrollertoxboxapp.input;
+
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Drives {@link HidrawInputSource} with a regular file and a named pipe standing
+ * in for /dev/hidrawN.
+ */
+public class HidrawInputSourceTest {
+    private static final int REPORT_SIZE = 64; // Steam Controller USB report
+
+    private File directory;
+
+    /** Keeps copies and the delivered array instances, in order. */
+    private static class CollectingListener implements InputSource.Listener {
+        final List<byte[]> copies = new ArrayList<>();
+        final List<byte[]> instances = new ArrayList<>();
+        final List<Long> arrivals = new ArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile IOException closeError;
+        volatile CountDownLatch expected = new CountDownLatch(0);
+
+        @Override
+        public void onReport(byte[] data, long arrivalNanos) {
+            synchronized (this) {
+                copies.add(data.clone());
+                instances.add(data);
+                arrivals.add(arrivalNanos);
+            }
+            expected.countDown();
+        }
+
+        @Override
+        public void onSourceClosed(IOException error) {
+            closeError = error;
+            closed.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("hidraw").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static byte[][] randomReports(int count) {
+        Random random = new Random(7);
+        byte[][] reports = new byte[count][REPORT_SIZE];
+        for (byte[] report : reports) {
+            random.nextBytes(report);
+        }
+        return reports;
+    }
+
+    @Test
+    public void fileIsSplitIntoFixedSizeReports() throws Exception {
+        byte[][] reports = randomReports(1000);
+        File file = new File(directory, "hidraw0");
+        try (OutputStream out = new FileOutputStream(file)) {
+            for (byte[] report : reports) {
+                out.write(report);
+            }
+            out.write(new byte[10]); // Trailing partial report
+        }
+
+        CollectingListener listener = new CollectingListener();
+        HidrawInputSource source = new HidrawInputSource(file.toPath(), REPORT_SIZE);
+        source.start(listener);
+        assertTrue("source did not reach end of file", listener.closed.await(5, TimeUnit.SECONDS));
+
+        assertNull(listener.closeError);
+        assertEquals(reports.length, listener.copies.size());
+        assertEquals(reports.length, source.getReportCount());
+        for (int i = 0; i < reports.length; i++) {
+            assertArrayEquals("report " + i, reports[i], listener.copies.get(i));
+            if (i > 0) {
+                assertTrue(listener.arrivals.get(i) >= listener.arrivals.get(i - 1));
+            }
+        }
+        // Report arrays come from a fixed ring instead of being allocated per read
+        assertSame(listener.instances.get(0), listener.instances.get(HidrawInputSource.BUFFER_RING_SIZE));
+        assertFalse(listener.instances.get(0) == listener.instances.get(1));
+    }
+
+    @Test
+    public void reportsFeedTheParser() throws Exception {
+        byte[] report = new byte[REPORT_SIZE];
+        report[1] = 0x02;               // Steam B, mapped to Xbox A
+        report[3] = (byte) 0xFF;        // Left trigger fully pressed
+        report[6] = 0x40;               // Left stick X = 0x4000, half right
+        File file = new File(directory, "hidraw1");
+        Files.write(file.toPath(), report);
+
+        SteamControllerParser.XboxOutput output = new SteamControllerParser.XboxOutput();
+        CountDownLatch parsed = new CountDownLatch(1);
+        HidrawInputSource source = new HidrawInputSource(file.toPath(), REPORT_SIZE);
+        source.start(new InputSource.Listener() {
+            @Override
+            public void onReport(byte[] data, long arrivalNanos) {
+                if (SteamControllerParser.parseInput(data, output)) {
+                    parsed.countDown();
+                }
+            }
+
+            @Override
+            public void onSourceClosed(IOException error) {
+            }
+        });
+        assertTrue(parsed.await(5, TimeUnit.SECONDS));
+        source.stop();
+
+        assertTrue(output.buttonA);
+        assertFalse(output.buttonB);
+        assertEquals(1.0, output.leftTrigger, 1e-6);
+        assertEquals(0.5, output.leftStickX, 1e-6);
+    }
+
+    private static boolean createFifo(File fifo) throws InterruptedException {
+        try {
+            return new ProcessBuilder("mkfifo", fifo.getPath()).start().waitFor() == 0;
+        } catch (IOException e) {
+            return false; // No mkfifo binary
+        }
+    }
+
+    @Test
+    public void stopUnblocksAReadWaitingOnAPipe() throws Exception {
+        File fifo = new File(directory, "hidraw2");
+        assumeTrue("mkfifo not available", createFifo(fifo));
+        byte[][] reports = randomReports(3);
+        CollectingListener listener = new CollectingListener();
+        listener.expected = new CountDownLatch(reports.length);
+        HidrawInputSource source = new HidrawInputSource(fifo.toPath(), REPORT_SIZE);
+
+        // Opening a FIFO for reading blocks until a writer shows up, so open the writer alongside
+        Thread writer = new Thread(() -> {
+            try (OutputStream out = new FileOutputStream(fifo)) {
+                for (byte[] report : reports) {
+                    out.write(report);
+                    out.flush();
+                    Thread.sleep(5);
+                }
+                // Keep the pipe open so the reader blocks instead of seeing end of stream
+                Thread.sleep(5000);
+            } catch (IOException | InterruptedException ignored) {
+            }
+        });
+        writer.start();
+        source.start(listener);
+        assertTrue(listener.expected.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        source.stop();
+        long stopMillis = (System.nanoTime() - start) / 1_000_000;
+        writer.interrupt();
+
+        assertTrue("stop took " + stopMillis + " ms", stopMillis < 1000);
+        assertEquals(1, listener.closed.getCount()); // No close callback after stop()
+        for (int i = 0; i < reports.length; i++) {
+            assertArrayEquals(reports[i], listener.copies.get(i));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.core.OutputScheduler;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds {@link IdleDetector} a synthetic 250 Hz report stream and checks what
+ * reaches the dispatcher and when the listener hears about idle, and that a
+ * sleeping {@link OutputScheduler} behind it still writes every edge.
+ */
+public class IdleDetectorTest {
+    private static final long REPORT_PERIOD_NANOS = 4_000_000L;
+    private static final long TIMEOUT_MILLIS = 100;
+    private static final int REPORT_LENGTH = 26; // Input plus gyro
+
+    /** Records forwarded reports and idle changes in one sequence, to check their order. */
+    private final List<String> events = new ArrayList<>();
+    private final IdleDetector detector = new IdleDetector(
+            (data, arrivalNanos) -> events.add("report " + (data[1] & 0xFF)),
+            idle -> events.add(idle ? "idle" : "wake"));
+
+    private long now = 0;
+
+    /** Counts presses and releases of Xbox A as written by the scheduler's timer thread. */
+    private static class EdgeCountingController implements VirtualController {
+        volatile int presses = 0;
+        volatile int releases = 0;
+        private boolean pressed = false;
+
+        @Override
+        public boolean initialize() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public void update(SteamControllerParser.XboxOutput state) {
+            if (state.buttonA != pressed) {
+                pressed = state.buttonA;
+                if (pressed) presses++; else releases++;
+            }
+        }
+
+        /** Waits up to two seconds for one press and one release. */
+        boolean awaitPressAndRelease() throws InterruptedException {
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (presses < 1 || releases < 1) {
+                if (System.nanoTime() > deadline) return false;
+                Thread.sleep(1);
+            }
+            return true;
+        }
+    }
+
+    private static byte[] report(int buttons, int gyro) {
+        byte[] report = new byte[REPORT_LENGTH];
+        report[1] = (byte) buttons;
+        report[SteamControllerParser.INPUT_REPORT_LENGTH] = (byte) gyro;
+        return report;
+    }
+
+    /** Sends count reports one period apart. */
+    private void send(int buttons, int count) {
+        for (int i = 0; i < count; i++) {
+            detector.onReport(report(buttons, i), now);
+            now += REPORT_PERIOD_NANOS;
+        }
+    }
+
+    private int forwarded() {
+        int count = 0;
+        for (String event : events) {
+            if (event.startsWith("report")) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void unchangedReportsStopAfterTimeout() {
+        detector.setTimeoutMillis(TIMEOUT_MILLIS);
+        send(0, 1000); // 4 s at rest, gyro bytes changing all the time
+        assertTrue(detector.isIdle());
+        assertEquals(1, detector.getIdlePeriods());
+        // Everything up to the timeout, then nothing
+        assertEquals(TIMEOUT_MILLIS * 1_000_000L / REPORT_PERIOD_NANOS, forwarded());
+        assertEquals("idle", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void firstChangedReportWakesBeforeItIsForwarded() {
+        detector.setTimeoutMillis(TIMEOUT_MILLIS);
+        send(0, 100);
+        events.clear();
+        send(0x01, 1); // Button press
+        assertEquals(List.of("wake", "report 1"), events);
+        assertFalse(detector.isIdle());
+    }
+
+    @Test
+    public void noButtonEdgeIsLostAcrossIdlePeriods() {
+        detector.setTimeoutMillis(TIMEOUT_MILLIS);
+        int[] presses = { 0x01, 0x00, 0x02, 0x00, 0x03, 0x00 };
+        List<String> expected = new ArrayList<>();
+        for (int buttons : presses) {
+            send(buttons, 200); // Each state held long enough to go idle
+            expected.add("report " + buttons);
+        }
+        List<String> edges = new ArrayList<>();
+        String previous = null;
+        for (String event : events) {
+            if (event.startsWith("report") && !event.equals(previous)) {
+                edges.add(event);
+            }
+            if (event.startsWith("report")) previous = event;
+        }
+        assertEquals(expected, edges);
+        assertEquals(presses.length, detector.getIdlePeriods());
+    }
+
+    @Test
+    public void resetLetsAnIdenticalReportThrough() {
+        detector.setTimeoutMillis(TIMEOUT_MILLIS);
+        send(0x04, 100);
+        assertTrue(detector.isIdle());
+        events.clear();
+        detector.reset(); // E.g. the link dropped and the output went neutral
+        send(0x04, 1);
+        assertEquals(List.of("wake", "report 4"), events);
+    }
+
+    @Test
+    public void zeroTimeoutNeverIdles() {
+        detector.setTimeoutMillis(0);
+        send(0, 1000);
+        assertFalse(detector.isIdle());
+        assertEquals(1000, forwarded());
+    }
+
+    @Test
+    public void pressAndReleaseAfterIdleReachTheControllerThroughASleepingScheduler() throws InterruptedException {
+        EdgeCountingController controller = new EdgeCountingController();
+        OutputScheduler scheduler = new OutputScheduler(controller, OutputScheduler.DEFAULT_RATE_HZ);
+        assertTrue(scheduler.initialize());
+        InputPipeline pipeline = InputPipeline.createReplay(new OneEuroFilter(FilterProfile.DEFAULT),
+                new ControllerMapper(scheduler), scheduler);
+        PipelineFrame frame = new PipelineFrame();
+        IdleDetector live = new IdleDetector((data, arrivalNanos) -> {
+            frame.set(data, arrivalNanos);
+            pipeline.process(frame);
+        }, idle -> { });
+        live.setTimeoutMillis(TIMEOUT_MILLIS);
+        try {
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (!live.isIdle() || !scheduler.isSleeping()) {
+                assertTrue("idle=" + live.isIdle() + " sleeping=" + scheduler.isSleeping(),
+                        System.nanoTime() < deadline);
+                live.onReport(report(0, 0), System.nanoTime());
+                LockSupport.parkNanos(REPORT_PERIOD_NANOS);
+            }
+            // Steam B maps to Xbox A; released before the timer thread is even awake
+            live.onReport(report(0x02, 0), System.nanoTime());
+            live.onReport(report(0x00, 0), System.nanoTime());
+
+            assertTrue("presses=" + controller.presses + " releases=" + controller.releases,
+                    controller.awaitPressAndRelease());
+            assertEquals(1, controller.presses);
+            assertEquals(1, controller.releases);
+            assertFalse(live.isIdle());
+        } finally {
+            scheduler.destroy();
+        }
+    }
+}
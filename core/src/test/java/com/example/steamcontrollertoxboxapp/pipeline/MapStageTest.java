@@ -0,0 +1,79 @@
+package com.example.steamcontrollertoxboxapp.pipeline;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerDefs;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs reports through a replay pipeline and checks that the button mapping
+ * set on the {@link ControllerMapper} is what reaches the virtual controller.
+ */
+public class MapStageTest {
+    private static final int STEAM_B = 0x02; // Decoded as Xbox A
+
+    /** Keeps the last state written to it. */
+    private static class LastStateController implements VirtualController {
+        final SteamControllerParser.XboxOutput last = new SteamControllerParser.XboxOutput();
+
+        @Override
+        public boolean initialize() {
+            return true;
+        }
+
+        @Override
+        public void update(SteamControllerParser.XboxOutput state) {
+            last.copyFrom(state);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    private final LastStateController controller = new LastStateController();
+    private final ControllerMapper mapper = new ControllerMapper(controller);
+    private final InputPipeline pipeline =
+            InputPipeline.createReplay(new OneEuroFilter(FilterProfile.DEFAULT), mapper, controller);
+    private final PipelineFrame frame = new PipelineFrame();
+    private long now = 1_000_000_000L;
+
+    private void send(int buttons) {
+        byte[] report = new byte[SteamControllerParser.INPUT_REPORT_LENGTH];
+        report[0] = (byte) SteamControllerDefs.EventKey.UPDATE.getValue();
+        report[1] = (byte) buttons;
+        now += 4_000_000L;
+        frame.set(report, now);
+        assertTrue(pipeline.process(frame));
+    }
+
+    @Test
+    public void identityMappingWritesTheDecodedButtons() {
+        send(STEAM_B);
+        assertTrue(controller.last.buttonA);
+        assertFalse(controller.last.buttonB);
+    }
+
+    @Test
+    public void remappedButtonReachesTheControllerAsItsTarget() {
+        mapper.setButtonMapping(VirtualController.XboxButton.A, VirtualController.XboxButton.B);
+        send(STEAM_B);
+        assertFalse(controller.last.buttonA);
+        assertTrue(controller.last.buttonB);
+        assertTrue(mapper.getButtonState(VirtualController.XboxButton.B));
+
+        send(0);
+        assertFalse(controller.last.buttonB);
+
+        mapper.resetButtonMapping();
+        send(STEAM_B);
+        assertTrue(controller.last.buttonA);
+        assertFalse(controller.last.buttonB);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.steamcontrollertoxboxapp.trace;
+
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerDefs;
+import com.example.steamcontrollertoxboxapp.core.SteamControllerParser;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records a synthetic trace through {@link TraceRecorder}, loads it back and
+ * checks that replays are deterministic and paced as requested.
+ */
+public class TraceReplayerTest {
+    private static final long REPORT_PERIOD_NANOS = 4_000_000L; // 250 Hz BLE reports
+    private static final int REPORT_COUNT = 500;
+
+    private File directory;
+
+    /** Serializes every state written to it, standing in for the uinput event stream. */
+    private static class RecordingController implements VirtualController {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        @Override
+        public boolean initialize() {
+            return true;
+        }
+
+        @Override
+        public void update(SteamControllerParser.XboxOutput state) {
+            try {
+                out.writeFloat(state.leftStickX);
+                out.writeFloat(state.leftStickY);
+                out.writeFloat(state.rightStickX);
+                out.writeFloat(state.rightStickY);
+                out.writeFloat(state.leftTrigger);
+                out.writeFloat(state.rightTrigger);
+                out.writeBoolean(state.buttonA);
+                out.writeBoolean(state.buttonB);
+                out.writeBoolean(state.buttonX);
+                out.writeBoolean(state.buttonY);
+                out.writeBoolean(state.buttonLB);
+                out.writeBoolean(state.buttonRB);
+                out.writeBoolean(state.buttonBack);
+                out.writeBoolean(state.buttonStart);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("traces").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /** Random stick/trigger motion and button presses, with a runt and a battery report every 100. */
+    private static byte[] syntheticReport(Random random, int i) {
+        byte[] report = new byte[i % 100 == 99 ? 8 : 20];
+        random.nextBytes(report);
+        report[0] = (byte) (i % 100 == 49 ? SteamControllerDefs.EventKey.BATTERY : SteamControllerDefs.EventKey.UPDATE)
+                .getValue();
+        return report;
+    }
+
+    private InputTrace recordSyntheticTrace(int reportCount, int segmentBytes) throws IOException, InterruptedException {
+        return recordSyntheticTrace("test", reportCount, segmentBytes, true);
+    }
+
+    /** The synthetic reports with jittered arrival times; without battery reports the others are unchanged. */
+    private InputTrace recordSyntheticTrace(String name, int reportCount, int segmentBytes, boolean withBattery)
+            throws IOException, InterruptedException {
+        TraceRecorder recorder = new TraceRecorder(directory, name, segmentBytes, 64);
+        recorder.open();
+        Random random = new Random(42);
+        long arrival = 1_000_000_000L;
+        for (int i = 0; i < reportCount; i++) {
+            byte[] report = syntheticReport(random, i);
+            arrival += REPORT_PERIOD_NANOS + random.nextInt(1_000_000) - 500_000;
+            if (!withBattery && SteamControllerParser.isBatteryReport(report)) {
+                continue;
+            }
+            // This loop outpaces any controller; give the rotator time to map the next segment
+            while (!recorder.record(report, arrival)) {
+                Thread.sleep(1);
+            }
+        }
+        recorder.close();
+        return InputTrace.load(directory, name);
+    }
+
+    private static byte[] replay(InputTrace trace, TraceReplayer.Speed speed) {
+        RecordingController controller = new RecordingController();
+        TraceReplayer.create(controller, FilterProfile.DEFAULT).replay(trace, speed);
+        return controller.bytes.toByteArray();
+    }
+
+    @Test
+    public void traceRoundTripsThroughRotatedSegments() throws Exception {
+        // About 30 bytes per record, so small segments force several rotations
+        int reportCount = 10_000;
+        InputTrace trace = recordSyntheticTrace(reportCount, 70_000);
+        assertTrue(directory.listFiles().length > 1);
+        assertEquals(reportCount, trace.size());
+
+        Random random = new Random(42);
+        long arrival = 1_000_000_000L;
+        for (int i = 0; i < reportCount; i++) {
+            byte[] expected = syntheticReport(random, i);
+            arrival += REPORT_PERIOD_NANOS + random.nextInt(1_000_000) - 500_000;
+            assertEquals(arrival, trace.getArrivalNanos(i));
+            assertArrayEquals(expected, trace.getReport(i));
+        }
+    }
+
+    @Test
+    public void maxSpeedReplaysAreByteIdentical() throws Exception {
+        InputTrace trace = recordSyntheticTrace(REPORT_COUNT, TraceRecorder.DEFAULT_SEGMENT_BYTES);
+        byte[] first = replay(trace, TraceReplayer.Speed.MAX);
+        byte[] second = replay(trace, TraceReplayer.Speed.MAX);
+
+        assertTrue(first.length > 0);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void recordedSpeedMatchesMaxSpeedOutputAndTiming() throws Exception {
+        InputTrace trace = recordSyntheticTrace(REPORT_COUNT, TraceRecorder.DEFAULT_SEGMENT_BYTES);
+        RecordingController controller = new RecordingController();
+        TraceReplayer.Result result = TraceReplayer.create(controller, FilterProfile.DEFAULT)
+                .replay(trace, TraceReplayer.Speed.RECORDED);
+
+        assertArrayEquals(replay(trace, TraceReplayer.Speed.MAX), controller.bytes.toByteArray());
+        assertEquals(REPORT_COUNT, result.reports);
+        assertEquals(2 * REPORT_COUNT / 100, result.rejectedReports); // Runts and battery reports
+        assertTrue("replay finished before the recording would have", result.elapsedNanos >= trace.getDurationNanos());
+    }
+
+    @Test
+    public void batteryReportsDoNotReachTheController() throws Exception {
+        InputTrace withBattery = recordSyntheticTrace("battery", REPORT_COUNT, TraceRecorder.DEFAULT_SEGMENT_BYTES, true);
+        InputTrace inputOnly = recordSyntheticTrace("input", REPORT_COUNT, TraceRecorder.DEFAULT_SEGMENT_BYTES, false);
+        assertEquals(REPORT_COUNT / 100, withBattery.size() - inputOnly.size());
+
+        assertArrayEquals(replay(inputOnly, TraceReplayer.Speed.MAX), replay(withBattery, TraceReplayer.Speed.MAX));
+    }
+}
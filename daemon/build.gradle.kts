@@ -0,0 +1,31 @@
+// Headless emulation daemon for plain Linux boxes, no Android runtime involved.
+//   ./gradlew :daemon:installDist
+//   cmake -S core/src/main/cpp -B build/native && cmake --build build/native
+//   DAEMON_OPTS=-Djava.library.path=build/native daemon/build/install/daemon/bin/daemon --help
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":core"))
+}
+
+application {
+    mainClass.set("com.example.steamcontrollertoxboxapp.daemon.HeadlessDaemon")
+    // The pipeline allocates nothing per report, so a small heap with the serial
+    // collector is plenty and keeps startup and resident memory low.
+    applicationDefaultJvmArgs = listOf(
+        "-Xms8m",
+        "-Xmx32m",
+        "-Xss512k",
+        "-XX:+UseSerialGC",
+        "-XX:ReservedCodeCacheSize=16m",
+        "-XX:MaxMetaspaceSize=32m",
+        "-Xshare:auto",
+    )
+}
@@ -0,0 +1,300 @@
+package com.example.steamcontrollertoxboxapp.daemon;
+
+import com.example.steamcontrollertoxboxapp.core.ControllerMapper;
+import com.example.steamcontrollertoxboxapp.core.FilterProfile;
+import com.example.steamcontrollertoxboxapp.core.LatencyHistogram;
+import com.example.steamcontrollertoxboxapp.core.OneEuroFilter;
+import com.example.steamcontrollertoxboxapp.core.OutputScheduler;
+import com.example.steamcontrollertoxboxapp.core.VirtualController;
+import com.example.steamcontrollertoxboxapp.input.HidrawInputSource;
+import com.example.steamcontrollertoxboxapp.input.InputSource;
+import com.example.steamcontrollertoxboxapp.logging.EventJournal;
+import com.example.steamcontrollertoxboxapp.logging.Log;
+import com.example.steamcontrollertoxboxapp.nativeimpl.UInputController;
+import com.example.steamcontrollertoxboxapp.pipeline.BatteryStage;
+import com.example.steamcontrollertoxboxapp.pipeline.InputPipeline;
+import com.example.steamcontrollertoxboxapp.pipeline.PipelineFrame;
+import com.example.steamcontrollertoxboxapp.pipeline.TraceStage;
+import com.example.steamcontrollertoxboxapp.trace.InputTrace;
+import com.example.steamcontrollertoxboxapp.trace.TraceRecorder;
+import com.example.steamcontrollertoxboxapp.trace.TraceReplayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the emulation pipeline on a plain Linux JVM: an input source feeds the
+ * same decode, filter, map and emit stages as the Android service, writing to
+ * a uinput device through the JNI bridge (root or the input group required),
+ * or to a counting stand-in with --null-sink.
+ */
+public class HeadlessDaemon {
+    private static final String TAG = "HeadlessDaemon";
+
+    static final String USAGE = "Usage: daemon (--hidraw <device> | --replay <trace-dir> <name>) [options]\n"
+            + "  --hidraw <device>       read a wired or dongle controller, e.g. /dev/hidraw0\n"
+            + "  --report-size <bytes>   split the hidraw stream into fixed-size reports (pipes, files)\n"
+            + "  --record <dir>          record the hidraw reports as a trace into <dir>\n"
+            + "  --replay <dir> <name>   replay the traces recorded as <name> in <dir>\n"
+            + "  --max-speed             replay as fast as possible instead of at recorded pace\n"
+            + "  --filter <profile>      off, default, smooth or responsive (default: default)\n"
+            + "  --rate <hz>             fixed uinput output rate, 0 writes each report (default: 0)\n"
+            + "  --null-sink             count events instead of writing to /dev/uinput\n"
+            + "  --timing                print per-stage pipeline timings on exit\n"
+            + "  --verbose               debug logging\n";
+
+    static final class Options {
+        String hidrawDevice;
+        int reportSize = 0;
+        File recordDirectory;
+        File traceDirectory;
+        String traceName;
+        boolean maxSpeed = false;
+        FilterProfile filterProfile = FilterProfile.DEFAULT;
+        int outputRateHz = 0;
+        boolean nullSink = false;
+        boolean timing = false;
+        boolean verbose = false;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--hidraw":
+                        options.hidrawDevice = value(args, ++i, "--hidraw");
+                        break;
+                    case "--report-size":
+                        options.reportSize = number(args, ++i, "--report-size");
+                        break;
+                    case "--record":
+                        options.recordDirectory = new File(value(args, ++i, "--record"));
+                        break;
+                    case "--replay":
+                        options.traceDirectory = new File(value(args, ++i, "--replay"));
+                        options.traceName = value(args, ++i, "--replay");
+                        break;
+                    case "--max-speed":
+                        options.maxSpeed = true;
+                        break;
+                    case "--filter":
+                        String name = value(args, ++i, "--filter");
+                        options.filterProfile = FilterProfile.forName(name);
+                        if (options.filterProfile == null) {
+                            throw new IllegalArgumentException("Unknown filter profile " + name);
+                        }
+                        break;
+                    case "--rate":
+                        options.outputRateHz = number(args, ++i, "--rate");
+                        break;
+                    case "--null-sink":
+                        options.nullSink = true;
+                        break;
+                    case "--timing":
+                        options.timing = true;
+                        break;
+                    case "--verbose":
+                        options.verbose = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if ((options.hidrawDevice == null) == (options.traceDirectory == null)) {
+                throw new IllegalArgumentException("Give exactly one input source");
+            }
+            return options;
+        }
+
+        private static int number(String[] args, int index, String option) {
+            try {
+                return Integer.parseInt(value(args, index, option));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(option + " needs a number");
+            }
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(option + " is missing an argument");
+            }
+            return args[index];
+        }
+    }
+
+    /** Stand-in for /dev/uinput that only counts, for measuring the Java side. */
+    static final class NullEventSink implements UInputController.EventSink {
+        long events;
+
+        @Override
+        public int open() {
+            return 0;
+        }
+
+        @Override
+        public void close(int fd) {
+        }
+
+        @Override
+        public boolean sendEvent(int fd, int type, int code, int value) {
+            events++;
+            return true;
+        }
+    }
+
+    private final Options options;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private VirtualController virtualController;
+    private InputSource inputSource;
+    private TraceRecorder traceRecorder;
+
+    HeadlessDaemon(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        long startNanos = System.nanoTime();
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        Log.setSink(new Log.StreamSink(System.err, options.verbose ? Log.DEBUG : Log.INFO));
+        System.exit(new HeadlessDaemon(options).run(startNanos));
+    }
+
+    int run(long startNanos) {
+        InputTrace trace = null;
+        if (options.traceDirectory != null) {
+            try {
+                trace = InputTrace.load(options.traceDirectory, options.traceName);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot load trace: " + e.getMessage());
+                return 1;
+            }
+        }
+
+        NullEventSink nullSink = options.nullSink ? new NullEventSink() : null;
+        VirtualController device = nullSink != null ? new UInputController(nullSink) : new UInputController();
+        virtualController = options.outputRateHz > 0 ? new OutputScheduler(device, options.outputRateHz) : device;
+        if (!virtualController.initialize()) {
+            Log.e(TAG, "Failed to create the virtual controller, is /dev/uinput writable?");
+            return 1;
+        }
+
+        // Ctrl-C: stop feeding and remove the virtual device, which would otherwise outlive us
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            mainThread.interrupt();
+            close();
+        }, "DaemonShutdown"));
+
+        int status = trace != null ? replay(trace, startNanos) : runLive(startNanos);
+        if (nullSink != null) {
+            Log.i(TAG, "Events written: " + nullSink.events);
+        }
+        close();
+        return status;
+    }
+
+    private int replay(InputTrace trace, long startNanos) {
+        InputPipeline pipeline = InputPipeline.createReplay(new OneEuroFilter(options.filterProfile),
+                new ControllerMapper(virtualController), virtualController);
+        pipeline.setTimingEnabled(options.timing);
+        Log.i(TAG, "Ready in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms, replaying "
+                + trace.size() + " reports (" + trace.getDurationNanos() / 1_000_000 + " ms)");
+
+        try {
+            TraceReplayer.Result result = new TraceReplayer(pipeline)
+                    .replay(trace, options.maxSpeed ? TraceReplayer.Speed.MAX : TraceReplayer.Speed.RECORDED);
+            Log.i(TAG, "Replay finished: " + result);
+        } catch (IllegalStateException e) {
+            if (!closed.get()) throw e;
+            // The shutdown hook destroyed the device under us
+        }
+        printTimings(pipeline);
+        return 0;
+    }
+
+    /** Runs the full pipeline inline on the source's reader thread until the source ends or we are stopped. */
+    private int runLive(long startNanos) {
+        LatencyHistogram latency = new LatencyHistogram();
+        TraceStage traceStage = new TraceStage();
+        InputPipeline pipeline = InputPipeline.createDefault(traceStage, new BatteryStage(),
+                new OneEuroFilter(options.filterProfile),
+                new ControllerMapper(virtualController), virtualController, latency);
+        pipeline.setTimingEnabled(options.timing);
+        PipelineFrame frame = new PipelineFrame();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        HidrawInputSource source = new HidrawInputSource(Paths.get(options.hidrawDevice), options.reportSize);
+        try {
+            if (options.recordDirectory != null) {
+                traceRecorder = new TraceRecorder(options.recordDirectory,
+                        Paths.get(options.hidrawDevice).getFileName().toString());
+                traceRecorder.open();
+                traceStage.setRecorder(traceRecorder);
+            }
+            inputSource = source;
+            source.start(new InputSource.Listener() {
+                @Override
+                public void onReport(byte[] data, long arrivalNanos) {
+                    frame.set(data, arrivalNanos);
+                    try {
+                        pipeline.process(frame);
+                    } catch (IllegalStateException e) {
+                        // Virtual device gone, normally because we are shutting down
+                        finished.countDown();
+                    }
+                }
+
+                @Override
+                public void onSourceClosed(IOException error) {
+                    finished.countDown();
+                }
+            });
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open " + options.hidrawDevice + ": " + e.getMessage());
+            return 1;
+        }
+        Log.i(TAG, "Ready in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms, reading " + source.getName());
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            // Shutdown hook
+        }
+        // With a fixed output rate the emit stage only hands the state to the scheduler
+        String end = options.outputRateHz > 0 ? "scheduler hand-off" : "uinput write";
+        Log.i(TAG, "Reports: " + source.getReportCount() + ", latency (read -> " + end + "): " + latency.snapshot());
+        printTimings(pipeline);
+        return 0;
+    }
+
+    private void printTimings(InputPipeline pipeline) {
+        if (options.timing) {
+            System.out.println(pipeline.formatTimings());
+        }
+    }
+
+    /** Idempotent; called from the main thread and the shutdown hook. */
+    private void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (inputSource != null) {
+            inputSource.stop();
+        }
+        if (traceRecorder != null) {
+            traceRecorder.close();
+        }
+        if (virtualController != null) {
+            virtualController.destroy();
+        }
+        EventJournal.flush();
+    }
+}
@@ -21,4 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "SteamControllerToXboxApp"
 include(":app")
+include(":core")
+include(":daemon")
+include(":benchmarks")
  
\ No newline at end of file